@@ -0,0 +1,82 @@
+package com.chatapp.utils;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernel for the bulk {@code byte[]} path of {@link CaesarCipher}, built on the incubating Java Vector API.
+ * <p>
+ * Each step loads one register of bytes and shifts every ASCII letter in it at once:
+ * <ul>
+ *     <li>two range compares per case find the upper and lower case letters,</li>
+ *     <li>a masked add shifts only those lanes, and</li>
+ *     <li>a masked subtract of 26 wraps the lanes that ran past 'Z' or 'z' back into the alphabet.</li>
+ * </ul>
+ * Any byte at or above 0x80 belongs to a multi-byte UTF-8 sequence, so a block containing one is left to
+ * the table-driven code in {@link CaesarCipher}.
+ * </p>
+ * <p>
+ * Compiling this class needs {@code --add-modules jdk.incubator.vector}, so it lives in {@code src-vector},
+ * outside the default build. To use it, compile it into the same output directory as the rest of the code
+ * and start the JVM with the module added:
+ * <pre>
+ *   javac --add-modules jdk.incubator.vector -cp out/production/Prutha-Chat-Application \
+ *         -d out/production/Prutha-Chat-Application src-vector/com/chatapp/utils/VectorCaesar.java
+ *   java --add-modules jdk.incubator.vector ...
+ * </pre>
+ * {@link CaesarCipher} looks this class up at runtime and keeps its table-driven path when the class or
+ * the module is missing.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+final class VectorCaesar {
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    private static final byte ALPHABET_SIZE = 26;
+
+    private VectorCaesar() {
+    }
+
+    /**
+     * @return the number of bytes shifted per step.
+     */
+    static int lanes() {
+        return SPECIES.length();
+    }
+
+    /**
+     * Shifts whole blocks of ASCII bytes from {@code src} into {@code dst}, stopping at the first block that
+     * contains a non-ASCII byte or when fewer than {@link #lanes()} bytes are left. Each block is read before
+     * it is written, so {@code src} and {@code dst} may be the same array as long as {@code dstOffset} is
+     * not past {@code srcOffset}.
+     *
+     * @param shift The number of positions to shift each letter, from 0 to 25.
+     * @return The number of bytes shifted, a multiple of {@link #lanes()}.
+     */
+    static int shiftAscii(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset, int shift) {
+        byte wrapUpper = (byte) ('Z' + 1 - shift);
+        byte wrapLower = (byte) ('z' + 1 - shift);
+
+        int done = 0;
+        for (int bound = length - SPECIES.length(); done <= bound; done += SPECIES.length()) {
+            ByteVector block = ByteVector.fromArray(SPECIES, src, srcOffset + done);
+            // Bytes are signed, so non-ASCII bytes are the negative lanes.
+            if (block.compare(VectorOperators.LT, (byte) 0).anyTrue()) {
+                break;
+            }
+            VectorMask<Byte> upper = block.compare(VectorOperators.GE, (byte) 'A')
+                    .and(block.compare(VectorOperators.LE, (byte) 'Z'));
+            VectorMask<Byte> lower = block.compare(VectorOperators.GE, (byte) 'a')
+                    .and(block.compare(VectorOperators.LE, (byte) 'z'));
+            VectorMask<Byte> wrap = block.compare(VectorOperators.GE, wrapUpper).and(upper)
+                    .or(block.compare(VectorOperators.GE, wrapLower).and(lower));
+            // Lanes may overflow past 127 after the add; the subtract brings every wrapped lane back.
+            block.add((byte) shift, upper.or(lower))
+                    .sub(ALPHABET_SIZE, wrap)
+                    .intoArray(dst, dstOffset + done);
+        }
+        return done;
+    }
+}
@@ -0,0 +1,322 @@
+package com.chatapp.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small, bounded pool of JDBC connections used by {@link DatabaseManager}.
+ * <p>
+ * Physical connections are opened lazily through {@link DriverManager} up to {@code maxSize}
+ * and handed out wrapped in a proxy whose {@code close()} returns the connection to the pool
+ * instead of closing the socket. Callers therefore keep using plain try-with-resources.
+ * </p>
+ * <p>
+ * The pool provides:
+ * <ul>
+ *     <li>Validation on borrow via {@link Connection#isValid(int)}</li>
+ *     <li>Eviction of connections that have been idle longer than the idle timeout</li>
+ *     <li>A maximum wait when every connection is in use</li>
+ *     <li>Leak detection for connections held longer than the leak threshold; the stack trace of where a
+ *     leaked connection was borrowed is only recorded with {@code -Dchatapp.db.pool.leakTrace=true}, since
+ *     capturing it costs a stack walk on every borrow</li>
+ *     <li>A per-connection LRU cache of prepared statements keyed by SQL text</li>
+ * </ul>
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+public class ConnectionPool {
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long HOUSEKEEPING_PERIOD_MILLIS = 30_000;
+    private static final boolean LEAK_TRACE = Boolean.getBoolean("chatapp.db.pool.leakTrace");
+    // Stands in for the borrow site when it is not recorded; the map cannot hold nulls.
+    private static final Throwable NO_BORROW_SITE = new Throwable("Borrow site not recorded");
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long maxWaitMillis;
+    private final long idleTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Map<PooledConnection, Throwable> borrowed = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService housekeeper;
+
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * Creates a pool for the given database.
+     *
+     * @param url                 The JDBC URL.
+     * @param user                The database user.
+     * @param password            The database password.
+     * @param maxSize             The maximum number of physical connections.
+     * @param maxWaitMillis       How long {@link #borrow()} waits for a free connection.
+     * @param idleTimeoutMillis   How long an unused connection is kept before being closed.
+     * @param leakThresholdMillis How long a connection may be held before it is reported as leaked.
+     * @param statementCacheSize  How many prepared statements to cache per connection; {@code 0} disables caching.
+     */
+    public ConnectionPool(String url, String user, String password, int maxSize,
+                          long maxWaitMillis, long idleTimeoutMillis, long leakThresholdMillis,
+                          int statementCacheSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive.");
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.maxWaitMillis = maxWaitMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "db-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeeping,
+                HOUSEKEEPING_PERIOD_MILLIS, HOUSEKEEPING_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if none is idle and the pool is not full.
+     * The returned connection must be closed to give it back.
+     *
+     * @return A validated connection.
+     * @throws SQLException if no connection became available within the maximum wait, or the
+     *                      database could not be reached.
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed.");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLException("Timed out after " + maxWaitMillis + " ms waiting for a database connection.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled = takeValidIdle();
+            if (pooled == null) {
+                pooled = new PooledConnection(DriverManager.getConnection(url, user, password));
+            }
+            pooled.lastBorrowed = System.currentTimeMillis();
+            borrowed.put(pooled, LEAK_TRACE ? new Throwable("Connection borrowed here") : NO_BORROW_SITE);
+            return pooled.proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeValidIdle() {
+        while (true) {
+            PooledConnection candidate;
+            synchronized (idle) {
+                candidate = idle.pollFirst();
+            }
+            if (candidate == null) {
+                return null;
+            }
+            try {
+                if (candidate.physical.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    return candidate;
+                }
+            } catch (SQLException ignored) {
+                // Treat as invalid and fall through to discard it.
+            }
+            candidate.closePhysical();
+        }
+    }
+
+    private void giveBack(PooledConnection pooled) {
+        if (borrowed.remove(pooled) == null) {
+            return; // Already returned; close() is idempotent.
+        }
+        boolean reusable = !closed;
+        if (pooled.statementCache != null) {
+            pooled.statementCache.releaseAll();
+        }
+        try {
+            if (reusable && !pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            reusable = false;
+        }
+        if (reusable) {
+            pooled.lastReturned = System.currentTimeMillis();
+            synchronized (idle) {
+                idle.offerFirst(pooled);
+            }
+        } else {
+            pooled.closePhysical();
+        }
+        permits.release();
+    }
+
+    private void recordWait(long waitNanos) {
+        borrowCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    private void housekeeping() {
+        long now = System.currentTimeMillis();
+        synchronized (idle) {
+            Iterator<PooledConnection> iterator = idle.iterator();
+            while (iterator.hasNext()) {
+                PooledConnection pooled = iterator.next();
+                if (now - pooled.lastReturned > idleTimeoutMillis) {
+                    iterator.remove();
+                    pooled.closePhysical();
+                }
+            }
+        }
+        for (Map.Entry<PooledConnection, Throwable> entry : borrowed.entrySet()) {
+            PooledConnection pooled = entry.getKey();
+            if (!pooled.leakReported && now - pooled.lastBorrowed > leakThresholdMillis) {
+                pooled.leakReported = true;
+                leakCount.incrementAndGet();
+                System.err.println("Possible connection leak: held for " + (now - pooled.lastBorrowed) + " ms");
+                if (entry.getValue() != NO_BORROW_SITE) {
+                    entry.getValue().printStackTrace();
+                } else {
+                    System.err.println("Run with -Dchatapp.db.pool.leakTrace=true to see where it was borrowed");
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a snapshot of the pool's current usage and wait-time counters.
+     *
+     * @return The current {@link PoolStats}.
+     */
+    public PoolStats getStats() {
+        int idleCount;
+        synchronized (idle) {
+            idleCount = idle.size();
+        }
+        return new PoolStats(maxSize, borrowed.size(), idleCount, permits.getQueueLength(),
+                borrowCount.get(), totalWaitNanos.get(), maxWaitNanos.get(), timeoutCount.get(), leakCount.get(),
+                statementCacheHits.get(), statementCacheMisses.get());
+    }
+
+    /**
+     * Closes every idle connection and stops the housekeeping thread. Connections that are still
+     * borrowed are closed when they are returned.
+     */
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        synchronized (idle) {
+            for (PooledConnection pooled : idle) {
+                pooled.closePhysical();
+            }
+            idle.clear();
+        }
+    }
+
+    /**
+     * A physical connection together with the proxy handed out to callers.
+     */
+    private final class PooledConnection implements InvocationHandler {
+        private final Connection physical;
+        private final Connection proxy;
+        private final StatementCache statementCache;
+        private volatile long lastBorrowed;
+        private volatile long lastReturned;
+        private volatile boolean leakReported;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statementCache = statementCacheSize > 0
+                    ? new StatementCache(physical, statementCacheSize, statementCacheHits, statementCacheMisses)
+                    : null;
+            this.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxyInstance, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(this, args);
+            }
+            String name = method.getName();
+            if ("close".equals(name) && method.getParameterCount() == 0) {
+                leakReported = false;
+                giveBack(this);
+                return null;
+            }
+            if ("isClosed".equals(name) && method.getParameterCount() == 0) {
+                return !borrowed.containsKey(this) || physical.isClosed();
+            }
+            if (!borrowed.containsKey(this)) {
+                throw new SQLException("Connection has already been returned to the pool.");
+            }
+            if (statementCache != null && "prepareStatement".equals(name)) {
+                Class<?>[] types = method.getParameterTypes();
+                if (types.length == 1) {
+                    return statementCache.prepare((String) args[0], null);
+                }
+                if (types.length == 2 && types[1] == int.class) {
+                    return statementCache.prepare((String) args[0], (Integer) args[1]);
+                }
+            }
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private void closePhysical() {
+            if (statementCache != null) {
+                statementCache.clear();
+            }
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
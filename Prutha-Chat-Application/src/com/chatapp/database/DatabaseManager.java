@@ -1,10 +1,15 @@
 package com.chatapp.database;
 
 import com.chatapp.models.ChatRoom;
+import com.chatapp.models.Message;
+import com.chatapp.models.MessagePage;
 import com.chatapp.models.RegisterUser;
+import com.chatapp.models.User;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -19,11 +24,13 @@ import java.util.List;
  *     <li>Managing the online status of users</li>
  *     <li>Associating and dissociating users from chat rooms</li>
  *     <li>CRUD operations for chat rooms</li>
+ *     <li>Persisting chat messages through a batched, asynchronous {@link MessageWriter}</li>
  * </ul>
  * </p>
  * <p>
- * Important: This class utilizes raw JDBC operations. It does not implement ORM or connection pooling.
- * Ensure judicious handling of database connections to prevent potential connection leaks.
+ * Important: This class utilizes raw JDBC operations. Connections are borrowed from a shared
+ * {@link ConnectionPool} and must be closed (returned) promptly; connections held for too long are
+ * reported as potential leaks.
  * </p>
  *
  * @author Prutha Upadhyay
@@ -31,10 +38,52 @@ import java.util.List;
 
 public class DatabaseManager {
 
-    private final String DB_URL = "jdbc:mysql://localhost:3306/chatapplication";
-    private final String DB_USER = "root";
-    private final String DB_PASS = "";
-    private final String DRIVER = "com.mysql.cj.jdbc.Driver";
+    // Server-side prepared statements so the per-connection statement cache also skips re-parsing on MySQL,
+    // and rewritten batches so a JDBC batch is sent as one multi-row INSERT.
+    private static final String DB_URL =
+            "jdbc:mysql://localhost:3306/chatapplication?useServerPrepStmts=true&rewriteBatchedStatements=true";
+    private static final String DB_USER = "root";
+    private static final String DB_PASS = "";
+    private static final String DRIVER = "com.mysql.cj.jdbc.Driver";
+
+    // Pool sizing; each value can be overridden with a -D system property of the same name.
+    private static final int POOL_MAX_SIZE = Integer.getInteger("chatapp.db.pool.maxSize", 10);
+    private static final long POOL_MAX_WAIT_MILLIS = Long.getLong("chatapp.db.pool.maxWaitMillis", 5_000);
+    private static final long POOL_IDLE_TIMEOUT_MILLIS = Long.getLong("chatapp.db.pool.idleTimeoutMillis", 300_000);
+    private static final long POOL_LEAK_THRESHOLD_MILLIS = Long.getLong("chatapp.db.pool.leakThresholdMillis", 60_000);
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("chatapp.db.pool.statementCacheSize", 32);
+
+    // Message write-behind tuning, overridable the same way.
+    private static final int MESSAGE_QUEUE_CAPACITY = Integer.getInteger("chatapp.messages.queueCapacity", 10_000);
+    private static final int MESSAGE_BATCH_SIZE = Integer.getInteger("chatapp.messages.batchSize", 100);
+    private static final long MESSAGE_FLUSH_INTERVAL_MILLIS = Long.getLong("chatapp.messages.flushIntervalMillis", 200);
+    private static final long MESSAGE_OFFER_TIMEOUT_MILLIS = Long.getLong("chatapp.messages.offerTimeoutMillis", 1_000);
+    private static final int MESSAGE_WRITE_ATTEMPTS = Integer.getInteger("chatapp.messages.writeAttempts", 5);
+    private static final long MESSAGE_RETRY_BACKOFF_MILLIS = Long.getLong("chatapp.messages.retryBackoffMillis", 100);
+
+    // Online-status write coalescing, overridable the same way.
+    private static final int PRESENCE_BATCH_SIZE = Integer.getInteger("chatapp.presence.batchSize", 100);
+    private static final long PRESENCE_FLUSH_INTERVAL_MILLIS = Long.getLong("chatapp.presence.flushIntervalMillis", 100);
+
+    // Membership batching; the unique key on userchatroom(userId, chatRoomId) makes both inserts idempotent.
+    private static final int MEMBERSHIP_BATCH_SIZE = Integer.getInteger("chatapp.memberships.batchSize", 100);
+    private static final String INSERT_MEMBERSHIP_SQL = "INSERT INTO userchatroom (userId, chatRoomId) VALUES (?, ?) "
+            + "ON DUPLICATE KEY UPDATE userId = userId";
+    private static final String INSERT_MEMBERSHIPS_SQL = "INSERT INTO userchatroom (userId, chatRoomId) VALUES "
+            + String.join(", ", Collections.nCopies(MEMBERSHIP_BATCH_SIZE, "(?, ?)"))
+            + " ON DUPLICATE KEY UPDATE userId = userId";
+
+    private static final String CREATE_MESSAGE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS message ("
+            + "messageId BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY, "
+            + "chatRoomId INT NOT NULL, "
+            + "senderId INT NOT NULL, "
+            + "sentAt DATETIME(3) NOT NULL, "
+            + "body TEXT NOT NULL, "
+            + "INDEX idx_message_room (chatRoomId, messageId))";
+
+    private static ConnectionPool connectionPool;
+    private static MessageWriter messageWriter;
+    private static PresenceWriter presenceWriter;
 
     /**
      * Provides the initialization and setup for the {@code DatabaseManager}.
@@ -55,15 +104,32 @@ public class DatabaseManager {
 
 
     /**
-     * Establishes and returns a connection to the Chat Application database.
+     * Returns the connection pool shared by every {@code DatabaseManager}, creating it on first use.
+     * The first call also adds any missing indexes through {@link SchemaBootstrap}.
+     *
+     * @return The shared connection pool.
+     * @throws ClassNotFoundException if the JDBC driver is not on the classpath.
+     */
+    private static synchronized ConnectionPool getConnectionPool() throws ClassNotFoundException {
+        if (connectionPool == null) {
+            Class.forName(DRIVER);
+            connectionPool = new ConnectionPool(DB_URL, DB_USER, DB_PASS, POOL_MAX_SIZE,
+                    POOL_MAX_WAIT_MILLIS, POOL_IDLE_TIMEOUT_MILLIS, POOL_LEAK_THRESHOLD_MILLIS, STATEMENT_CACHE_SIZE);
+            SchemaBootstrap.run(connectionPool);
+        }
+        return connectionPool;
+    }
+
+    /**
+     * Borrows a connection to the Chat Application database from the shared pool.
+     * Closing the returned connection gives it back to the pool.
      *
      * @return A valid database connection.
      * @throws RuntimeException if there's an error connecting to the database.
      */
     public Connection getConnection() {
         try {
-            Class.forName(DRIVER);
-            return DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+            return getConnectionPool().borrow();
         } catch (Exception ex) {
             System.out.println(ex.getMessage());
             System.out.println("couldn't connect!");
@@ -71,6 +137,216 @@ public class DatabaseManager {
         }
     }
 
+    /**
+     * Returns current usage of the connection pool (active, idle, wait-time and statement cache counters).
+     *
+     * @return A {@link PoolStats} snapshot.
+     */
+    public PoolStats getPoolStats() {
+        try {
+            return getConnectionPool().getStats();
+        } catch (ClassNotFoundException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Returns the counters of the background message writer (queued, written, retried, failed and rejected
+     * messages), all zero if no message has been saved yet.
+     *
+     * @return A {@link WriterStats} snapshot.
+     */
+    public WriterStats getMessageWriterStats() {
+        synchronized (DatabaseManager.class) {
+            return messageWriter == null ? new WriterStats(0, 0, 0, 0, 0, 0, 0) : messageWriter.getStats();
+        }
+    }
+
+    /**
+     * Returns the counters of the background online-status writer, all zero if no status has been queued yet.
+     *
+     * @return A {@link WriterStats} snapshot.
+     */
+    public WriterStats getPresenceWriterStats() {
+        synchronized (DatabaseManager.class) {
+            return presenceWriter == null ? new WriterStats(0, 0, 0, 0, 0, 0, 0) : presenceWriter.getStats();
+        }
+    }
+
+    /**
+     * Returns the message writer shared by every {@code DatabaseManager}, creating the {@code message}
+     * table and starting the writer thread on first use. A shutdown hook flushes pending messages on exit.
+     *
+     * @return The shared message writer.
+     */
+    private static synchronized MessageWriter getMessageWriter() throws ClassNotFoundException, SQLException {
+        if (messageWriter == null) {
+            ConnectionPool pool = getConnectionPool();
+            try (Connection connection = pool.borrow();
+                 Statement statement = connection.createStatement()) {
+                statement.executeUpdate(CREATE_MESSAGE_TABLE_SQL);
+            }
+            messageWriter = new MessageWriter(pool, MESSAGE_QUEUE_CAPACITY, MESSAGE_BATCH_SIZE,
+                    MESSAGE_FLUSH_INTERVAL_MILLIS, MESSAGE_OFFER_TIMEOUT_MILLIS, MESSAGE_WRITE_ATTEMPTS,
+                    MESSAGE_RETRY_BACKOFF_MILLIS);
+            Runtime.getRuntime().addShutdownHook(new Thread(messageWriter::close, "message-writer-shutdown"));
+        }
+        return messageWriter;
+    }
+
+    /**
+     * Queues a chat message to be written to the {@code message} table in the background.
+     * Blocks briefly if the write queue is full.
+     *
+     * @param chatRoomId   The ID of the chat room the message was sent in.
+     * @param senderId     The ID of the sending user.
+     * @param sentAtMillis The time the message was sent, in epoch milliseconds.
+     * @param body         The (encrypted) message text.
+     * @return {@code true} if the message was queued; {@code false} if it was rejected.
+     */
+    public boolean saveMessage(int chatRoomId, int senderId, long sentAtMillis, String body) {
+        return saveMessage(new Message(Message.UNSAVED_ID, chatRoomId, senderId, null, sentAtMillis, body));
+    }
+
+    /**
+     * Queues a chat message to be written to the {@code message} table in the background. Once written,
+     * the message is given its generated ID through {@link Message#assignMessageId(long)}.
+     *
+     * @param message The message to store.
+     * @return {@code true} if the message was queued; {@code false} if it was rejected.
+     */
+    public boolean saveMessage(Message message) {
+        try {
+            return getMessageWriter().enqueue(message);
+        } catch (ClassNotFoundException | SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Blocks until every message queued so far has been written to the database.
+     */
+    public void flushMessages() {
+        MessageWriter writer;
+        synchronized (DatabaseManager.class) {
+            writer = messageWriter;
+        }
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Returns the online-status writer shared by every {@code DatabaseManager}, starting it on first use.
+     * A shutdown hook writes any pending changes on exit.
+     *
+     * @return The shared presence writer.
+     */
+    private static synchronized PresenceWriter getPresenceWriter() throws ClassNotFoundException {
+        if (presenceWriter == null) {
+            presenceWriter = new PresenceWriter(getConnectionPool(), PRESENCE_BATCH_SIZE, PRESENCE_FLUSH_INTERVAL_MILLIS);
+            Runtime.getRuntime().addShutdownHook(new Thread(presenceWriter::close, "presence-writer-shutdown"));
+        }
+        return presenceWriter;
+    }
+
+    /**
+     * Queues a change to a user's online status. Changes are written in the background, and several
+     * changes to the same user within one flush interval are written once, with the latest value.
+     *
+     * @param userId The ID of the user.
+     * @param online The user's new status.
+     */
+    public void queueOnlineStatus(int userId, boolean online) {
+        try {
+            getPresenceWriter().queue(userId, online);
+        } catch (ClassNotFoundException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Blocks until every queued online-status change has been written to the database.
+     */
+    public void flushOnlineStatus() {
+        PresenceWriter writer;
+        synchronized (DatabaseManager.class) {
+            writer = presenceWriter;
+        }
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Marks every user in the {@code User} table offline with a single statement, discarding queued
+     * status changes. Intended for shutdown of the process that owns all sessions, such as the chat server.
+     *
+     * @return The number of users that were marked offline.
+     */
+    public int markAllUsersOffline() {
+        try {
+            return getPresenceWriter().markAllOffline();
+        } catch (ClassNotFoundException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    /**
+     * Fetches one page of a chat room's stored messages by keyset pagination on the message ID. The query
+     * walks the {@code (chatRoomId, messageId)} index backwards from the cursor, so a page costs the same
+     * however much history the room has. One extra row is read to tell whether older messages remain.
+     * <p>
+     * Only the first page ({@link MessagePage#LATEST}) flushes the write-behind queue; queued messages get
+     * IDs above any existing cursor, so older pages cannot be missing any.
+     * </p>
+     *
+     * @param chatRoomId      The ID of the chat room.
+     * @param beforeMessageId Only messages with a smaller ID are returned; {@link MessagePage#LATEST} for the newest page.
+     * @param limit           The maximum number of messages on the page.
+     * @return The page, with its messages oldest first.
+     */
+    public MessagePage fetchMessagePage(int chatRoomId, long beforeMessageId, int limit) {
+        List<Message> messages = new ArrayList<>(limit + 1);
+        if (beforeMessageId == MessagePage.LATEST) {
+            try {
+                getMessageWriter().flush();
+            } catch (ClassNotFoundException | SQLException e) {
+                e.printStackTrace();
+                return new MessagePage(messages, false);
+            }
+        }
+
+        String sql = "SELECT m.messageId, m.senderId, u.name, m.sentAt, m.body FROM message m "
+                + "LEFT JOIN User u ON u.userId = m.senderId "
+                + "WHERE m.chatRoomId = ? AND m.messageId < ? "
+                + "ORDER BY m.messageId DESC LIMIT ?";
+        try (Connection connection = getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setInt(1, chatRoomId);
+            preparedStatement.setLong(2, beforeMessageId);
+            preparedStatement.setInt(3, limit + 1);
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                while (rs.next()) {
+                    messages.add(new Message(rs.getLong("messageId"), chatRoomId, rs.getInt("senderId"),
+                            rs.getString("name"), rs.getTimestamp("sentAt").getTime(), rs.getString("body")));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        boolean hasMore = messages.size() > limit;
+        if (hasMore) {
+            messages.remove(messages.size() - 1); // The extra, oldest row only signals that more exist.
+        }
+        // Rows come back newest first so LIMIT keeps the newest page; return them in reading order.
+        Collections.reverse(messages);
+        return new MessagePage(messages, hasMore);
+    }
+
     /**
      * Stores the provided user's data into the User table of the database.
      *
@@ -95,7 +371,10 @@ public class DatabaseManager {
      * @param username The username to search for.
      * @param password The associated password to the username.
      * @return A {@code RegisterUser} object containing the fetched user details, or {@code null} if not found.
+     * @deprecated Passwords are stored as salted hashes, which cannot be matched in SQL. Fetch the user with
+     * {@link #fetchUserByUsername(String)} and verify the password through {@code UserManager.login}.
      */
+    @Deprecated
     public RegisterUser fetchUserByUsernameAndPassword(String username, String password) {
         String sql = "SELECT * FROM User WHERE username = ? AND password = ?";
         try (Connection connection = getConnection();
@@ -143,12 +422,32 @@ public class DatabaseManager {
         return null;
     }
 
+    /**
+     * Replaces a user's stored password hash.
+     *
+     * @param userId       The ID of the user.
+     * @param passwordHash The new encoded hash.
+     * @return {@code true} if the user's row was updated.
+     */
+    public boolean updatePassword(int userId, String passwordHash) {
+        String sql = "UPDATE User SET password = ? WHERE userId = ?";
+        try (Connection connection = getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setString(1, passwordHash);
+            preparedStatement.setInt(2, userId);
+            return preparedStatement.executeUpdate() == 1;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
     /**
      * Updates the online status of the given user in the database.
      *
      * @param user The {@code RegisterUser} object whose online status needs to be updated.
      */
-    public void updateUserOnlineStatus(RegisterUser user) {
+    public void updateUserOnlineStatus(User user) {
         String sql = "UPDATE User SET online = ? WHERE userId = ?";
         try (Connection connection = getConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
@@ -167,8 +466,8 @@ public class DatabaseManager {
         ChatRoom chatRoom = null;
 
         try {
-            // Establish connection
-            connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+            // Borrow a pooled connection
+            connection = getConnection();
 
             // Prepare SQL query
             String sql = "SELECT * FROM chatroom WHERE chatRoomName = ?";
@@ -183,6 +482,7 @@ public class DatabaseManager {
                 int chatRoomId = resultSet.getInt("chatRoomId");
                 String chatRoomName = resultSet.getString("chatRoomName");
                 chatRoom = new ChatRoom(chatRoomId);
+                chatRoom.setRoomName(chatRoomName);
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -202,7 +502,9 @@ public class DatabaseManager {
     
 
     /**
-     * Inserts a user into a specific chat room in the database.
+     * Inserts a user into a specific chat room in the database. Safe to call for a user who is already a
+     * member: the unique key on {@code userchatroom(userId, chatRoomId)} turns the insert into a no-op, so
+     * concurrent joins of the same user cannot create duplicate rows.
      *
      * @param userId     The ID of the user to be inserted.
      * @param chatRoomId The ID of the chat room where the user needs to be added.
@@ -219,40 +521,45 @@ public class DatabaseManager {
         }
     } */
     public void insertUserToChatRoom(int userId, int chatRoomId) {
-        String sql = "INSERT INTO userchatroom (userId, chatRoomId) VALUES (?, ?)";
-
-        try (Connection connection = getConnection()) {
-            // Start a transaction
-            connection.setAutoCommit(false);
+        try (Connection connection = getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(INSERT_MEMBERSHIP_SQL)) {
+            preparedStatement.setInt(1, userId);
+            preparedStatement.setInt(2, chatRoomId);
+            preparedStatement.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
 
-            try {
-                // Check if the user is already in the chat room
-                String checkUserInChatRoomSQL = "SELECT * FROM userchatroom WHERE userId = ? AND chatRoomId = ?";
-                try (PreparedStatement checkStatement = connection.prepareStatement(checkUserInChatRoomSQL)) {
-                    checkStatement.setInt(1, userId);
-                    checkStatement.setInt(2, chatRoomId);
-                    ResultSet resultSet = checkStatement.executeQuery();
-
-                    if (!resultSet.next()) {
-                        // User is not in the chat room, so insert them
-                        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
-                            preparedStatement.setInt(1, userId);
-                            preparedStatement.setInt(2, chatRoomId);
-                            preparedStatement.executeUpdate();
-                        }
-                    }
-
-                    // Commit the transaction
-                    connection.commit();
+    /**
+     * Adds many users to a chat room at once. Each statement inserts up to {@code chatapp.memberships.batchSize}
+     * users as a multi-row insert; users who are already members are left as they are.
+     *
+     * @param userIds    The IDs of the users to be added.
+     * @param chatRoomId The ID of the chat room where the users need to be added.
+     * @return {@code true} if every user is now a member; {@code false} if a statement failed.
+     */
+    public boolean insertUsersToChatRoom(Collection<Integer> userIds, int chatRoomId) {
+        if (userIds.isEmpty()) {
+            return true;
+        }
+        List<Integer> ids = new ArrayList<>(userIds);
+        try (Connection connection = getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(INSERT_MEMBERSHIPS_SQL)) {
+            for (int start = 0; start < ids.size(); start += MEMBERSHIP_BATCH_SIZE) {
+                int end = Math.min(start + MEMBERSHIP_BATCH_SIZE, ids.size());
+                for (int i = 0; i < MEMBERSHIP_BATCH_SIZE; i++) {
+                    // Pad short chunks with the last user so the statement text, and its cache entry, never change;
+                    // the repeated rows hit the unique key and are ignored.
+                    preparedStatement.setInt(2 * i + 1, ids.get(Math.min(start + i, end - 1)));
+                    preparedStatement.setInt(2 * i + 2, chatRoomId);
                 }
-            } catch (SQLException e) {
-                // Handle database-related exceptions
-                connection.rollback(); // Rollback the transaction in case of an error
-                e.printStackTrace(); // Log the exception or handle it as needed
+                preparedStatement.executeUpdate();
             }
+            return true;
         } catch (SQLException e) {
-            // Handle database connection-related exceptions
-            e.printStackTrace(); // Log the exception or handle it as needed
+            e.printStackTrace();
+            return false;
         }
     }
 
@@ -282,10 +589,10 @@ public class DatabaseManager {
      */
     public List<ChatRoom> fetchChatRooms() {
         List<ChatRoom> chatRooms = new ArrayList<>();
-        try (Connection connection = getConnection()) {
-            String sql = "SELECT * FROM ChatRoom";
-            PreparedStatement preparedStatement = connection.prepareStatement(sql);
-            ResultSet rs = preparedStatement.executeQuery();
+        String sql = "SELECT * FROM ChatRoom";
+        try (Connection connection = getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql);
+             ResultSet rs = preparedStatement.executeQuery()) {
 
             while (rs.next()) {
                 int chatRoomId = rs.getInt("chatRoomId");
@@ -310,23 +617,27 @@ public class DatabaseManager {
     public int createChatRoom(ChatRoom chatRoom, int loggedInUserId) {
         int generatedChatRoomId = -1; // Initialize with a default value
 
-        try (Connection connection = getConnection()) {
-            String sql = "INSERT INTO ChatRoom (chatRoomName) VALUES (?)";
-            PreparedStatement preparedStatement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+        String sql = "INSERT INTO ChatRoom (chatRoomName) VALUES (?)";
+        try (Connection connection = getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             preparedStatement.setString(1, chatRoom.getRoomName());
             preparedStatement.executeUpdate();
 
-            ResultSet generatedKeys = preparedStatement.getGeneratedKeys();
-            if (generatedKeys.next()) {
-                generatedChatRoomId = generatedKeys.getInt(1);
+            try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    generatedChatRoomId = generatedKeys.getInt(1);
+                }
             }
-
-            // Insert a record into UserChatRoom to associate the user with the chat room
-            insertUserToChatRoom(loggedInUserId, generatedChatRoomId);
         } catch (SQLException e) {
             e.printStackTrace();
         }
 
+        if (generatedChatRoomId != -1) {
+            // Insert a record into UserChatRoom to associate the user with the chat room.
+            // Done after the insert's connection is returned so a small pool cannot deadlock on itself.
+            insertUserToChatRoom(loggedInUserId, generatedChatRoomId);
+        }
+
         return generatedChatRoomId;
     }
 
@@ -337,17 +648,17 @@ public class DatabaseManager {
      * @return A {@code ChatRoom} object representing the fetched chat room, or {@code null} if not found.
      */
     public ChatRoom getChatRoomById(int chatRoomId) {
-        try (Connection connection = getConnection()) {
-            String sql = "SELECT * FROM ChatRoom WHERE chatRoomId = ?";
-            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+        String sql = "SELECT * FROM ChatRoom WHERE chatRoomId = ?";
+        try (Connection connection = getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
             preparedStatement.setInt(1, chatRoomId);
-            ResultSet rs = preparedStatement.executeQuery();
-
-            if (rs.next()) {
-                ChatRoom chatRoom = new ChatRoom(chatRoomId);
-                chatRoom.setRoomName(rs.getString("chatRoomName"));
-                // Set other properties as needed
-                return chatRoom;
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                if (rs.next()) {
+                    ChatRoom chatRoom = new ChatRoom(chatRoomId);
+                    chatRoom.setRoomName(rs.getString("chatRoomName"));
+                    // Set other properties as needed
+                    return chatRoom;
+                }
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -0,0 +1,302 @@
+package com.chatapp.database;
+
+import com.chatapp.models.Message;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind pipeline that persists chat messages to the {@code message} table.
+ * <p>
+ * Messages are buffered in a bounded queue and written by a single background thread using JDBC
+ * batches. A batch is flushed as soon as {@code batchSize} messages are waiting or
+ * {@code flushIntervalMillis} has elapsed since its first message, whichever comes first. When the
+ * queue is full, producers block for up to {@code offerTimeoutMillis} before the message is rejected.
+ * </p>
+ * <p>
+ * A batch that fails is rolled back and tried again, up to {@code maxAttempts} times in all, waiting
+ * {@code retryBackoffMillis} before the first retry and twice as long before each one after it. Later
+ * messages wait in the queue meanwhile, so a brief database outage delays messages instead of losing them;
+ * only a batch that fails every attempt is dropped and counted as failed.
+ * </p>
+ * <p>
+ * Because there is a single writer thread, messages are inserted in the order they were queued. Once a
+ * batch is committed, each {@link Message} is given the ID generated for its row, so copies held in memory
+ * can be used as paging cursors; a {@link #flush()} returns only after the IDs of everything it waited for
+ * are assigned.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+class MessageWriter {
+    private static final String INSERT_SQL =
+            "INSERT INTO message (chatRoomId, senderId, sentAt, body) VALUES (?, ?, ?, ?)";
+
+    private final ConnectionPool pool;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long offerTimeoutMillis;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+    private final BlockingQueue<PendingMessage> queue;
+    private final Thread writerThread;
+
+    private final AtomicLong queuedCount = new AtomicLong();
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private volatile boolean running = true;
+
+    /**
+     * @param pool                The pool the writer borrows connections from.
+     * @param queueCapacity       The maximum number of messages waiting to be written.
+     * @param batchSize           The maximum number of messages per batch.
+     * @param flushIntervalMillis The longest a queued message waits before its batch is written.
+     * @param offerTimeoutMillis  How long a producer blocks on a full queue before giving up.
+     * @param maxAttempts         How many times a batch is tried before its messages are dropped.
+     * @param retryBackoffMillis  How long to wait before retrying a failed batch; doubled after each retry.
+     */
+    MessageWriter(ConnectionPool pool, int queueCapacity, int batchSize, long flushIntervalMillis,
+                  long offerTimeoutMillis, int maxAttempts, long retryBackoffMillis) {
+        this.pool = pool;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writerThread = new Thread(this::run, "message-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Queues a message for writing, blocking while the queue is full.
+     *
+     * @return {@code true} if the message was queued; {@code false} if the queue stayed full for the
+     *         whole offer timeout or the writer has been closed.
+     */
+    boolean enqueue(Message message) {
+        if (!running) {
+            return false;
+        }
+        try {
+            if (queue.offer(new PendingMessage(message), offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                queuedCount.incrementAndGet();
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejectedCount.incrementAndGet();
+        System.err.println("Message queue full; dropped message for chat room " + message.getChatRoomId());
+        return false;
+    }
+
+    /**
+     * Blocks until every message queued before this call has been written.
+     */
+    void flush() {
+        if (!writerThread.isAlive()) {
+            drainAndWrite();
+            return;
+        }
+        PendingMessage marker = PendingMessage.flushMarker();
+        try {
+            queue.put(marker);
+            marker.flushed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops accepting messages, writes everything still queued and stops the writer thread.
+     */
+    void close() {
+        flush();
+        running = false;
+        writerThread.interrupt();
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drainAndWrite(); // Anything that raced in after the flush.
+    }
+
+    /**
+     * @return the writer's counters; its statements are the batches committed.
+     */
+    WriterStats getStats() {
+        return new WriterStats(queuedCount.get(), writtenCount.get(), batchCount.get(), retryCount.get(),
+                failedCount.get(), rejectedCount.get(), queue.size());
+    }
+
+    private void run() {
+        List<PendingMessage> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                PendingMessage first = queue.take();
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                PendingMessage next = first;
+                while (next != null) {
+                    if (next.isFlushMarker()) {
+                        write(batch);
+                        next.flushed.countDown();
+                    } else {
+                        batch.add(next);
+                        if (batch.size() >= batchSize) {
+                            write(batch);
+                        }
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                write(batch);
+                if (!running) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private synchronized void drainAndWrite() {
+        List<PendingMessage> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        List<PendingMessage> batch = new ArrayList<>(batchSize);
+        for (PendingMessage message : pending) {
+            if (message.isFlushMarker()) {
+                message.flushed.countDown();
+                continue;
+            }
+            batch.add(message);
+            if (batch.size() >= batchSize) {
+                write(batch);
+            }
+        }
+        write(batch);
+    }
+
+    /**
+     * Writes the batch, retrying with backoff when it fails, and clears it.
+     */
+    private synchronized void write(List<PendingMessage> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long backoffMillis = retryBackoffMillis;
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    insert(batch);
+                    return;
+                } catch (SQLException e) {
+                    if (attempt >= maxAttempts) {
+                        failedCount.addAndGet(batch.size());
+                        System.err.println("Dropped " + batch.size() + " messages after " + attempt + " failed attempts");
+                        e.printStackTrace();
+                        return;
+                    }
+                    retryCount.incrementAndGet();
+                    System.err.println("Writing " + batch.size() + " messages failed, retrying in "
+                            + backoffMillis + " ms: " + e);
+                    pause(backoffMillis);
+                    backoffMillis *= 2;
+                }
+            }
+        } finally {
+            batch.clear();
+        }
+    }
+
+    /**
+     * Inserts the batch in a single transaction and gives each message its generated ID.
+     */
+    private void insert(List<PendingMessage> batch) throws SQLException {
+        try (Connection connection = pool.borrow()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(INSERT_SQL,
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (PendingMessage pending : batch) {
+                    Message message = pending.message;
+                    preparedStatement.setInt(1, message.getChatRoomId());
+                    preparedStatement.setInt(2, message.getSenderId());
+                    preparedStatement.setTimestamp(3, new Timestamp(message.getTimestamp()));
+                    preparedStatement.setString(4, message.getBody());
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+                long[] messageIds = new long[batch.size()];
+                try (ResultSet keys = preparedStatement.getGeneratedKeys()) {
+                    for (int i = 0; i < messageIds.length && keys.next(); i++) {
+                        messageIds[i] = keys.getLong(1);
+                    }
+                }
+                connection.commit();
+                batchCount.incrementAndGet();
+                writtenCount.addAndGet(batch.size());
+                // Only after the commit, so a rolled back batch never hands out IDs.
+                for (int i = 0; i < messageIds.length; i++) {
+                    if (messageIds[i] != Message.UNSAVED_ID) {
+                        batch.get(i).message.assignMessageId(messageIds[i]);
+                    }
+                }
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Waits before a retry. When interrupted, as on {@link #close()}, the remaining attempts run without waiting.
+     */
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A message waiting to be written, or a marker used by {@link #flush()}.
+     */
+    private static final class PendingMessage {
+        private final Message message;
+        private final CountDownLatch flushed;
+
+        private PendingMessage(Message message) {
+            this(message, null);
+        }
+
+        private PendingMessage(Message message, CountDownLatch flushed) {
+            this.message = message;
+            this.flushed = flushed;
+        }
+
+        private static PendingMessage flushMarker() {
+            return new PendingMessage(null, new CountDownLatch(1));
+        }
+
+        private boolean isFlushMarker() {
+            return flushed != null;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.chatapp.database;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An immutable snapshot of {@link ConnectionPool} usage, intended for sizing the pool.
+ *
+ * @author Prutha Upadhyay
+ */
+public class PoolStats {
+    private final int maxSize;
+    private final int active;
+    private final int idle;
+    private final int waiting;
+    private final long borrowCount;
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+    private final long timeoutCount;
+    private final long leakCount;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+
+    PoolStats(int maxSize, int active, int idle, int waiting, long borrowCount,
+              long totalWaitNanos, long maxWaitNanos, long timeoutCount, long leakCount,
+              long statementCacheHits, long statementCacheMisses) {
+        this.maxSize = maxSize;
+        this.active = active;
+        this.idle = idle;
+        this.waiting = waiting;
+        this.borrowCount = borrowCount;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+        this.timeoutCount = timeoutCount;
+        this.leakCount = leakCount;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+    }
+
+    /**
+     * @return the maximum number of physical connections the pool may open.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return the number of connections currently borrowed.
+     */
+    public int getActive() {
+        return active;
+    }
+
+    /**
+     * @return the number of open connections waiting in the pool.
+     */
+    public int getIdle() {
+        return idle;
+    }
+
+    /**
+     * @return the number of threads currently waiting for a connection.
+     */
+    public int getWaiting() {
+        return waiting;
+    }
+
+    /**
+     * @return the total number of successful borrows.
+     */
+    public long getBorrowCount() {
+        return borrowCount;
+    }
+
+    /**
+     * @return the mean time spent waiting for a connection, in milliseconds.
+     */
+    public double getAverageWaitMillis() {
+        return borrowCount == 0 ? 0 : (double) totalWaitNanos / borrowCount / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return the longest time any borrower waited for a connection, in milliseconds.
+     */
+    public double getMaxWaitMillis() {
+        return (double) maxWaitNanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return the number of borrows that gave up after the maximum wait.
+     */
+    public long getTimeoutCount() {
+        return timeoutCount;
+    }
+
+    /**
+     * @return the number of connections reported as possibly leaked.
+     */
+    public long getLeakCount() {
+        return leakCount;
+    }
+
+    /**
+     * @return the number of prepared statements served from a connection's statement cache.
+     */
+    public long getStatementCacheHits() {
+        return statementCacheHits;
+    }
+
+    /**
+     * @return the number of prepared statements that had to be prepared because they were not cached.
+     */
+    public long getStatementCacheMisses() {
+        return statementCacheMisses;
+    }
+
+    /**
+     * @return the fraction of prepared statements served from the cache, between 0 and 1.
+     */
+    public double getStatementCacheHitRatio() {
+        long lookups = statementCacheHits + statementCacheMisses;
+        return lookups == 0 ? 0 : (double) statementCacheHits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PoolStats[active=%d, idle=%d, max=%d, waiting=%d, borrows=%d, avgWait=%.2fms, maxWait=%.2fms, timeouts=%d, leaks=%d, stmtHits=%d, stmtMisses=%d]",
+                active, idle, maxSize, waiting, borrowCount, getAverageWaitMillis(), getMaxWaitMillis(), timeoutCount, leakCount,
+                statementCacheHits, statementCacheMisses);
+    }
+}
@@ -0,0 +1,186 @@
+package com.chatapp.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind pipeline for the {@code online} column of the {@code User} table.
+ * <p>
+ * Status changes are not written one {@code UPDATE} at a time. They are collected in a map keyed by user
+ * ID, so a user who logs in and out several times within one {@code flushIntervalMillis} window costs a
+ * single write of their latest status. A background thread then writes each window as at most two kinds
+ * of statement, one per status:
+ * <pre>
+ *   UPDATE User SET online = ? WHERE userId IN (?, ?, ...)
+ * </pre>
+ * The {@code IN} list always has {@code batchSize} placeholders (short lists repeat their last ID), so the
+ * statement text never changes and stays in the per-connection statement cache.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+class PresenceWriter {
+    private static final String MARK_ALL_OFFLINE_SQL = "UPDATE User SET online = FALSE WHERE online = TRUE";
+
+    private final ConnectionPool pool;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final String updateSql;
+    private final Map<Integer, Boolean> pending = new ConcurrentHashMap<>();
+    // Serializes writes from the background thread, flush() and markAllOffline().
+    private final Object writeLock = new Object();
+    private final Thread writerThread;
+
+    private final AtomicLong requestedCount = new AtomicLong();
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong statementCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private volatile boolean running = true;
+
+    /**
+     * @param pool                The pool the writer borrows connections from.
+     * @param batchSize           The number of user IDs per {@code UPDATE} statement.
+     * @param flushIntervalMillis How long status changes are collected before they are written.
+     */
+    PresenceWriter(ConnectionPool pool, int batchSize, long flushIntervalMillis) {
+        this.pool = pool;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.updateSql = "UPDATE User SET online = ? WHERE userId IN ("
+                + String.join(", ", Collections.nCopies(batchSize, "?")) + ")";
+        this.writerThread = new Thread(this::run, "presence-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Records a user's new status, replacing any change for the same user that has not been written yet.
+     */
+    void queue(int userId, boolean online) {
+        requestedCount.incrementAndGet();
+        pending.put(userId, online);
+    }
+
+    /**
+     * Writes every status change queued before this call, on the calling thread.
+     */
+    void flush() {
+        synchronized (writeLock) {
+            writePending();
+        }
+    }
+
+    /**
+     * Marks every user offline with one statement and drops any queued changes, for use on shutdown.
+     *
+     * @return The number of users that were marked offline.
+     */
+    int markAllOffline() {
+        synchronized (writeLock) {
+            pending.clear();
+            try (Connection connection = pool.borrow();
+                 PreparedStatement preparedStatement = connection.prepareStatement(MARK_ALL_OFFLINE_SQL)) {
+                statementCount.incrementAndGet();
+                return preparedStatement.executeUpdate();
+            } catch (SQLException e) {
+                e.printStackTrace();
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Writes what is still queued and stops the writer thread.
+     */
+    void close() {
+        running = false;
+        writerThread.interrupt();
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * @return the writer's counters. Changes whose write failed are queued again rather than dropped, so
+     *         each failed write counts as a retry and the failed and rejected counts stay zero.
+     */
+    WriterStats getStats() {
+        return new WriterStats(requestedCount.get(), writtenCount.get(), statementCount.get(), retryCount.get(),
+                0, 0, pending.size());
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                Thread.sleep(flushIntervalMillis);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    return;
+                }
+            }
+            flush();
+        }
+    }
+
+    /**
+     * Takes the queued changes out of the map and writes them. Must hold {@link #writeLock}.
+     */
+    private void writePending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Integer> online = new ArrayList<>();
+        List<Integer> offline = new ArrayList<>();
+        for (Map.Entry<Integer, Boolean> entry : pending.entrySet()) {
+            // Only take the value we saw; if it changed meanwhile the newer one is written next time.
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                (entry.getValue() ? online : offline).add(entry.getKey());
+            }
+        }
+        if (online.isEmpty() && offline.isEmpty()) {
+            return;
+        }
+
+        try (Connection connection = pool.borrow();
+             PreparedStatement preparedStatement = connection.prepareStatement(updateSql)) {
+            write(preparedStatement, true, online);
+            write(preparedStatement, false, offline);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            retryCount.incrementAndGet();
+            requeue(online, true);
+            requeue(offline, false);
+        }
+    }
+
+    private void write(PreparedStatement preparedStatement, boolean online, List<Integer> userIds) throws SQLException {
+        for (int start = 0; start < userIds.size(); start += batchSize) {
+            int end = Math.min(start + batchSize, userIds.size());
+            preparedStatement.setBoolean(1, online);
+            for (int i = 0; i < batchSize; i++) {
+                // Pad short chunks with the last ID; repeating it in the IN list has no effect.
+                preparedStatement.setInt(i + 2, userIds.get(Math.min(start + i, end - 1)));
+            }
+            preparedStatement.executeUpdate();
+            statementCount.incrementAndGet();
+            writtenCount.addAndGet(end - start);
+        }
+    }
+
+    private void requeue(List<Integer> userIds, boolean online) {
+        for (Integer userId : userIds) {
+            pending.putIfAbsent(userId, online);
+        }
+    }
+}
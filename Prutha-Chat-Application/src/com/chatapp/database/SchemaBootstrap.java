@@ -0,0 +1,171 @@
+package com.chatapp.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Makes sure the indexes the application's hot queries rely on exist, once per process.
+ * <p>
+ * It widens {@code User.password} to hold salted password hashes if it is narrower, keeping the column's
+ * nullability, default, character set, collation and comment, and adds:
+ * <ul>
+ *     <li>a unique index on {@code User(username)}, so login and user lookups are a single index probe, and</li>
+ *     <li>a unique index on {@code userchatroom(userId, chatRoomId)}, so a membership can only be stored once.</li>
+ * </ul>
+ * An index is only added when the table has no unique index on exactly those columns yet, whatever it is
+ * called. Existing duplicate memberships are collapsed to one row, deleting the extra rows in place so the
+ * one kept loses none of its columns, before the membership index is added.
+ * Duplicate usernames cannot be merged automatically; they are reported and the username index is skipped.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+final class SchemaBootstrap {
+    private static final int ER_DUP_ENTRY = 1062;
+    // Comfortably above the ~90 characters of an encoded PBKDF2 hash.
+    private static final int PASSWORD_COLUMN_WIDTH = 255;
+
+    private static final String FIND_PASSWORD_COLUMN_SQL = "SELECT data_type, character_maximum_length, "
+            + "is_nullable, column_default, character_set_name, collation_name, column_comment "
+            + "FROM information_schema.columns WHERE table_schema = DATABASE() "
+            + "AND LOWER(table_name) = 'user' AND LOWER(column_name) = 'password'";
+
+    private static final String FIND_DUPLICATE_MEMBERSHIPS_SQL = "SELECT userId, chatRoomId, COUNT(*) "
+            + "FROM userchatroom GROUP BY userId, chatRoomId HAVING COUNT(*) > 1";
+
+    private static final String FIND_UNIQUE_INDEX_SQL = "SELECT index_name FROM information_schema.statistics "
+            + "WHERE table_schema = DATABASE() AND LOWER(table_name) = LOWER(?) AND non_unique = 0 "
+            + "GROUP BY index_name "
+            + "HAVING GROUP_CONCAT(LOWER(column_name) ORDER BY seq_in_index) = LOWER(?)";
+
+    private SchemaBootstrap() {
+    }
+
+    /**
+     * Adds any missing indexes. Failures are reported but never stop the application from starting.
+     *
+     * @param pool The pool to borrow a connection from.
+     */
+    static void run(ConnectionPool pool) {
+        try (Connection connection = pool.borrow()) {
+            ensurePasswordColumnWidth(connection);
+            ensureUniqueIndex(connection, "User", "username", "uq_user_username");
+            if (!ensureUniqueIndex(connection, "userchatroom", "userId,chatRoomId", "uq_userchatroom_user_room")) {
+                removeDuplicateMemberships(connection);
+                ensureUniqueIndex(connection, "userchatroom", "userId,chatRoomId", "uq_userchatroom_user_room");
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void ensurePasswordColumnWidth(Connection connection) throws SQLException {
+        StringBuilder definition = new StringBuilder();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(FIND_PASSWORD_COLUMN_SQL)) {
+            if (!rs.next() || rs.getLong("character_maximum_length") >= PASSWORD_COLUMN_WIDTH) {
+                return;
+            }
+            String dataType = rs.getString("data_type");
+            if (!"varchar".equalsIgnoreCase(dataType) && !"char".equalsIgnoreCase(dataType)) {
+                System.err.println("Cannot widen User.password: unexpected column type " + dataType);
+                return;
+            }
+            // MODIFY replaces the whole column definition, so restate every attribute it had besides the width.
+            definition.append(dataType.toUpperCase()).append('(').append(PASSWORD_COLUMN_WIDTH).append(')');
+            if (rs.getString("character_set_name") != null) {
+                definition.append(" CHARACTER SET ").append(rs.getString("character_set_name"));
+            }
+            if (rs.getString("collation_name") != null) {
+                definition.append(" COLLATE ").append(rs.getString("collation_name"));
+            }
+            definition.append("YES".equalsIgnoreCase(rs.getString("is_nullable")) ? " NULL" : " NOT NULL");
+            if (rs.getString("column_default") != null) {
+                definition.append(" DEFAULT ").append(quote(rs.getString("column_default")));
+            }
+            String comment = rs.getString("column_comment");
+            if (comment != null && !comment.isEmpty()) {
+                definition.append(" COMMENT ").append(quote(comment));
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("ALTER TABLE User MODIFY password " + definition);
+            System.out.println("Widened User.password to " + definition + " for password hashes");
+        }
+    }
+
+    private static String quote(String literal) {
+        return "'" + literal.replace("\\", "\\\\").replace("'", "''") + "'";
+    }
+
+    /**
+     * @return {@code false} only if the index could not be added because the table holds duplicate keys.
+     */
+    private static boolean ensureUniqueIndex(Connection connection, String table, String columns, String indexName)
+            throws SQLException {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(FIND_UNIQUE_INDEX_SQL)) {
+            preparedStatement.setString(1, table);
+            preparedStatement.setString(2, columns);
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                if (rs.next()) {
+                    return true; // Already unique, possibly under another name.
+                }
+            }
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("ALTER TABLE " + table + " ADD UNIQUE INDEX " + indexName + " (" + columns + ")");
+            System.out.println("Added unique index " + indexName + " on " + table + "(" + columns + ")");
+            return true;
+        } catch (SQLException e) {
+            if (e.getErrorCode() != ER_DUP_ENTRY) {
+                throw e;
+            }
+            System.err.println("Cannot add unique index " + indexName + ": " + table
+                    + " has duplicate values in (" + columns + ")");
+            return false;
+        }
+    }
+
+    /**
+     * Deletes all but one row of each (user, chat room) pair in {@code userchatroom}, in one transaction.
+     * The extra rows are deleted in place with {@code LIMIT}, so the table needs no key to tell duplicates
+     * apart and the row kept is left untouched.
+     */
+    private static void removeDuplicateMemberships(Connection connection) throws SQLException {
+        List<long[]> duplicates = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(FIND_DUPLICATE_MEMBERSHIPS_SQL)) {
+            while (rs.next()) {
+                duplicates.add(new long[] {rs.getInt(1), rs.getInt(2), rs.getLong(3)});
+            }
+        }
+        if (duplicates.isEmpty()) {
+            return;
+        }
+
+        connection.setAutoCommit(false);
+        try (PreparedStatement preparedStatement = connection.prepareStatement(
+                "DELETE FROM userchatroom WHERE userId = ? AND chatRoomId = ? LIMIT ?")) {
+            int removed = 0;
+            for (long[] duplicate : duplicates) {
+                preparedStatement.setInt(1, (int) duplicate[0]);
+                preparedStatement.setInt(2, (int) duplicate[1]);
+                preparedStatement.setLong(3, duplicate[2] - 1);
+                removed += preparedStatement.executeUpdate();
+            }
+            connection.commit();
+            System.out.println("Removed " + removed + " duplicate chat room memberships");
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.chatapp.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A least-recently-used cache of prepared statements belonging to a single pooled connection.
+ * <p>
+ * Statements are keyed by their SQL text (and, for inserts, whether generated keys were requested).
+ * Callers receive a proxy whose {@code close()} clears the parameters and parks the statement back
+ * in the cache, so the hot queries in {@link DatabaseManager} are prepared once per connection. Each
+ * checkout gets its own proxy, which rejects every call once it has been closed, so a caller holding on to
+ * a closed statement can never run it under the parameters of the statement's next user.
+ * </p>
+ * <p>
+ * If the same SQL is prepared again while its cached statement is still checked out, the second statement
+ * is not cached. It is closed at the end of the borrow even if the borrower forgets to.
+ * </p>
+ * <p>
+ * A connection is only used by one borrower at a time, so the cache itself is not thread-safe.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+class StatementCache {
+    private final Connection physical;
+    private final int maxSize;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final Map<String, CachedStatement> statements;
+    // Statements prepared during the current borrow while their SQL's cached statement was in use.
+    private final List<PreparedStatement> uncached = new ArrayList<>();
+
+    /**
+     * @param physical The connection that prepares the statements.
+     * @param maxSize  The number of statements to keep; the least recently used is closed beyond that.
+     * @param hits     Pool-wide counter incremented when a cached statement is reused.
+     * @param misses   Pool-wide counter incremented when a statement has to be prepared.
+     */
+    StatementCache(Connection physical, int maxSize, AtomicLong hits, AtomicLong misses) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() > StatementCache.this.maxSize) {
+                    eldest.getValue().evict();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns a prepared statement for the given SQL, reusing a cached one when it is not already in use.
+     *
+     * @param sql               The SQL text.
+     * @param autoGeneratedKeys The generated keys flag, or {@code null} for a plain {@code prepareStatement(sql)}.
+     * @return A statement proxy that returns to the cache when closed.
+     * @throws SQLException if the statement cannot be prepared.
+     */
+    PreparedStatement prepare(String sql, Integer autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys == null ? sql : autoGeneratedKeys + ":" + sql;
+        CachedStatement cached = statements.get(key);
+        if (cached != null && !cached.isInUse()) {
+            hits.incrementAndGet();
+            return cached.checkOut();
+        }
+        misses.incrementAndGet();
+        PreparedStatement statement = autoGeneratedKeys == null
+                ? physical.prepareStatement(sql)
+                : physical.prepareStatement(sql, autoGeneratedKeys);
+        if (cached != null) {
+            // Same SQL prepared twice in one borrow; hand out an uncached copy, closed when the borrow ends.
+            uncached.add(statement);
+            return statement;
+        }
+        CachedStatement fresh = new CachedStatement(statement);
+        statements.put(key, fresh);
+        return fresh.checkOut();
+    }
+
+    /**
+     * Parks every statement the borrower forgot to close, so the next borrower can reuse it, and closes the
+     * borrow's uncached statements.
+     */
+    void releaseAll() {
+        for (CachedStatement cached : statements.values()) {
+            try {
+                cached.release();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+        closeUncached();
+    }
+
+    /**
+     * Closes every cached statement, e.g. before the physical connection is discarded.
+     */
+    void clear() {
+        for (CachedStatement cached : statements.values()) {
+            cached.evict();
+        }
+        statements.clear();
+        closeUncached();
+    }
+
+    private void closeUncached() {
+        for (PreparedStatement statement : uncached) {
+            try {
+                statement.close(); // No effect if the borrower already closed it.
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+        uncached.clear();
+    }
+
+    private static final class CachedStatement {
+        private final PreparedStatement statement;
+        private Lease lease; // The current borrower's handle, or null while parked in the cache.
+        private boolean evicted;
+
+        private CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        private boolean isInUse() {
+            return lease != null;
+        }
+
+        private PreparedStatement checkOut() {
+            lease = new Lease();
+            return lease.proxy;
+        }
+
+        private void release() throws SQLException {
+            if (lease == null) {
+                return;
+            }
+            lease = null;
+            if (evicted) {
+                statement.close();
+            } else {
+                statement.clearParameters();
+                statement.clearBatch();
+            }
+        }
+
+        private void evict() {
+            evicted = true;
+            if (lease == null) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        /**
+         * One checkout of the statement; it stops working once closed, even after the statement is handed out again.
+         */
+        private final class Lease implements InvocationHandler {
+            private final PreparedStatement proxy = (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, this);
+
+            @Override
+            public Object invoke(Object proxyInstance, Method method, Object[] args) throws Throwable {
+                if (method.getDeclaringClass() == Object.class) {
+                    return method.invoke(this, args);
+                }
+                String name = method.getName();
+                boolean current = lease == this;
+                if ("close".equals(name) && method.getParameterCount() == 0) {
+                    if (current) {
+                        release();
+                    }
+                    return null;
+                }
+                if ("isClosed".equals(name) && method.getParameterCount() == 0) {
+                    return !current || statement.isClosed();
+                }
+                if (!current) {
+                    throw new SQLException("Statement has already been returned to the cache.");
+                }
+                try {
+                    return method.invoke(statement, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.chatapp.database;
+
+/**
+ * An immutable snapshot of one of the write-behind pipelines ({@link MessageWriter} or {@link PresenceWriter}),
+ * intended for sizing their queues and batches and for noticing writes that are being lost.
+ *
+ * @author Prutha Upadhyay
+ */
+public class WriterStats {
+    private final long queuedCount;
+    private final long writtenCount;
+    private final long statementCount;
+    private final long retryCount;
+    private final long failedCount;
+    private final long rejectedCount;
+    private final int pendingCount;
+
+    WriterStats(long queuedCount, long writtenCount, long statementCount, long retryCount, long failedCount,
+                long rejectedCount, int pendingCount) {
+        this.queuedCount = queuedCount;
+        this.writtenCount = writtenCount;
+        this.statementCount = statementCount;
+        this.retryCount = retryCount;
+        this.failedCount = failedCount;
+        this.rejectedCount = rejectedCount;
+        this.pendingCount = pendingCount;
+    }
+
+    /**
+     * @return the number of writes accepted, including presence changes later replaced before being written.
+     */
+    public long getQueuedCount() {
+        return queuedCount;
+    }
+
+    /**
+     * @return the number of rows written.
+     */
+    public long getWrittenCount() {
+        return writtenCount;
+    }
+
+    /**
+     * @return the number of batches or statements that succeeded.
+     */
+    public long getStatementCount() {
+        return statementCount;
+    }
+
+    /**
+     * @return the number of times a failed write was tried again.
+     */
+    public long getRetryCount() {
+        return retryCount;
+    }
+
+    /**
+     * @return the number of rows given up on after every attempt failed.
+     */
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * @return the number of writes refused because the queue was full or the writer was closed.
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * @return the number of writes waiting to be written.
+     */
+    public int getPendingCount() {
+        return pendingCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WriterStats[queued=%d, written=%d, statements=%d, retries=%d, failed=%d, rejected=%d, pending=%d]",
+                queuedCount, writtenCount, statementCount, retryCount, failedCount, rejectedCount, pendingCount);
+    }
+}
@@ -1,37 +1,112 @@
 package com.chatapp.models;
 
-import com.chatapp.utils.CaesarCipher;
+import com.chatapp.storage.MessageLog;
+import com.chatapp.utils.MessageCipher;
 
 import java.io.*;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.ArrayDeque;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Represents a chat room within the Chat Application, responsible for managing
  * participants,
  * storing chat history, and facilitating message communication between users.
  * <p>
- * The chat room ensures messages are encrypted using a Caesar Cipher technique
- * for added security.
+ * The chat room ensures messages are encrypted with its {@link MessageCipher}, by default the one chosen
+ * by the {@code chatapp.cipher} system property (a Caesar Cipher unless configured otherwise).
  * Additionally, it supports functionalities to save chat histories to a file
  * and load them back,
  * providing persistence of chat interactions across sessions.
  * </p>
+ * <p>
+ * A room can also have a {@link MessageLog} attached, which then records every message as it is added and
+ * refills the in-memory history when the room is loaded again, so its history survives restarts without
+ * a database. With a log attached, saving only makes the logged messages durable and loading reads them
+ * back from the log; without one, the history is exported to and printed from a text file as before.
+ * A log can also be attached lazily with {@link #setMessageLogOpener(Callable)}, in which case it is only
+ * opened when the room's history or log is first used.
+ * </p>
+ * <p>
+ * Only the most recent messages are held in memory, in a bounded {@link MessageHistory}. Its capacity and
+ * retention age default to the {@code chatapp.history.capacity} and {@code chatapp.history.maxAgeMillis}
+ * system properties and can be set per room through the constructor.
+ * </p>
+ * <p>
+ * A chat room is safe to share between threads: participants are kept in a concurrent map keyed by
+ * user ID, and the history serializes appends while letting readers take snapshots without locking.
+ * Messages from one sender keep the order in which that sender posted them.
+ * </p>
+ * <p>
+ * Every message added to the history is also pushed to the room's {@link MessageListener}s, so views can
+ * show new messages as they arrive instead of re-reading the whole history. Listeners are called in
+ * history order, one message at a time.
+ * </p>
+ * <p>
+ * A message takes its place in that order under the history's lock, which is held only long enough to
+ * append it and queue it for delivery. Writing it to the log and calling the listeners happen afterwards,
+ * under a separate delivery lock that passes the queued messages on in order, so slow disk writes or
+ * listeners never block readers of the history or the opening of its log.
+ * </p>
  *
  * @author Prutha Upadhyay
  */
 public class ChatRoom {
-    private static final int CIPHER_SHIFT = 3; // Move magic number to a named constant
+    private static final MessageCipher DEFAULT_CIPHER = MessageCipher.fromSystemProperties();
+
+    // In-memory history retention; each value can be overridden with a -D system property of the same name.
+    private static final int HISTORY_CAPACITY = Integer.getInteger("chatapp.history.capacity", 1_000);
+    private static final long HISTORY_MAX_AGE_MILLIS = Long.getLong("chatapp.history.maxAgeMillis", 0);
+    // Echoes each encrypted and decrypted message to standard output; off by default, since it runs on the
+    // server's message path and System.out is synchronized.
+    private static final boolean DEBUG_MESSAGES = Boolean.getBoolean("chatapp.debug.messages");
+
     private final int chatRoomId;
-    private final List<RegisterUser> participants = new ArrayList<>();
-    private final List<String> chatHistory = new ArrayList<>();
-    private String roomName;
+    private final Map<Integer, RegisterUser> participants = new ConcurrentHashMap<>();
+    private final MessageHistory chatHistory;
+    private final MessageCipher cipher;
+    // Copy-on-write: subscribers change rarely, while every message iterates the list.
+    private final List<MessageListener> listeners = new CopyOnWriteArrayList<>();
+    // Messages in the history but not yet logged and passed to the listeners, in history order; guarded by
+    // the history's lock. They are taken off only while holding deliveryLock, which is never acquired
+    // while holding the history's lock.
+    private final ArrayDeque<Message> undelivered = new ArrayDeque<>();
+    private final Object deliveryLock = new Object();
+    private volatile String roomName;
+    private volatile MessageLog messageLog;
+    // Opens the log on first use; cleared, under the history's lock, once it has been called or the log closed.
+    private volatile Callable<MessageLog> messageLogOpener;
 
     public ChatRoom(int chatRoomId) {
+        this(chatRoomId, HISTORY_CAPACITY, HISTORY_MAX_AGE_MILLIS);
+    }
+
+    /**
+     * Creates a chat room with its own in-memory history retention.
+     *
+     * @param chatRoomId          The ID of the chat room.
+     * @param historyCapacity     The maximum number of messages kept in memory.
+     * @param historyMaxAgeMillis How long messages are kept in memory, or {@code 0} for no age limit.
+     */
+    public ChatRoom(int chatRoomId, int historyCapacity, long historyMaxAgeMillis) {
+        this(chatRoomId, historyCapacity, historyMaxAgeMillis, DEFAULT_CIPHER);
+    }
+
+    /**
+     * Creates a chat room with its own in-memory history retention and message cipher.
+     *
+     * @param chatRoomId          The ID of the chat room.
+     * @param historyCapacity     The maximum number of messages kept in memory.
+     * @param historyMaxAgeMillis How long messages are kept in memory, or {@code 0} for no age limit.
+     * @param cipher              The cipher that encrypts sent and decrypts received messages.
+     */
+    public ChatRoom(int chatRoomId, int historyCapacity, long historyMaxAgeMillis, MessageCipher cipher) {
         this.chatRoomId = chatRoomId;
+        this.chatHistory = new MessageHistory(historyCapacity, historyMaxAgeMillis);
+        this.cipher = cipher;
     }
 
     /**
@@ -45,44 +120,272 @@ public class ChatRoom {
 
     /**
      * Retrieves a list of participants present in the chat room. The list is
-     * unmodifiable.
+     * an unmodifiable snapshot.
      *
      * @return an unmodifiable list of {@code RegisterUser} participants.
      */
     public List<RegisterUser> getParticipants() {
-        return Collections.unmodifiableList(participants);
+        return List.copyOf(participants.values());
+    }
+
+    /**
+     * Checks whether a user is currently a participant of the chat room.
+     *
+     * @param userId The ID of the user.
+     * @return {@code true} if the user is a participant; {@code false} otherwise.
+     */
+    public boolean isParticipant(int userId) {
+        return participants.containsKey(userId);
+    }
+
+    /**
+     * Retrieves the number of participants without copying the participant list.
+     *
+     * @return the number of participants.
+     */
+    public int getParticipantCount() {
+        return participants.size();
+    }
+
+    /**
+     * Retrieves the cipher used for this room's messages.
+     *
+     * @return the room's message cipher.
+     */
+    public MessageCipher getMessageCipher() {
+        return cipher;
+    }
+
+    /**
+     * Retrieves the recent chat history held in memory, oldest first. The list is an unmodifiable snapshot.
+     *
+     * @return an unmodifiable list of chat messages.
+     */
+    public List<Message> getChatHistory() {
+        openPendingMessageLog();
+        return chatHistory.snapshot();
     }
 
     /**
-     * Retrieves the chat history of the room. The list is unmodifiable.
+     * Retrieves at most the {@code limit} newest messages held in memory, oldest first. Older messages,
+     * including ones already evicted from memory, are paged in through {@code ChatRoomManager.getMessagesBefore}.
      *
+     * @param limit The maximum number of messages to return.
      * @return an unmodifiable list of chat messages.
      */
-    public List<String> getChatHistory() {
-    return Collections.unmodifiableList(chatHistory);
+    public List<Message> getChatHistory(int limit) {
+        openPendingMessageLog();
+        return chatHistory.snapshot(limit);
     }
 
     /**
-     * Adds a participant to the chat room.
+     * Retrieves the in-memory history itself, for its size, retention settings and eviction counters.
+     *
+     * @return the room's message history.
+     */
+    public MessageHistory getMessageHistory() {
+        openPendingMessageLog();
+        return chatHistory;
+    }
+
+    /**
+     * Appends an already built message to the chat history.
+     *
+     * @param message The message to store.
+     */
+    public void addMessage(Message message) {
+        append(message);
+    }
+
+    /**
+     * Subscribes to the room's message stream. The listener sees every message added from now on, in the
+     * order it enters the history. It may also see a few messages that entered the history just before it
+     * subscribed but had not been delivered yet, so a caller that also reads the history must allow for
+     * messages in both.
+     *
+     * @param listener The listener to call for each new message.
+     */
+    public void addMessageListener(MessageListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unsubscribes a listener added with {@link #addMessageListener(MessageListener)}.
+     *
+     * @param listener The listener to remove.
+     */
+    public void removeMessageListener(MessageListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Attaches a durable log to the room: the newest logged messages, up to the history's capacity, are
+     * loaded into the in-memory history, and every message added from now on is appended to the log.
+     * Listeners are not told about the loaded messages, which are not logged again.
+     *
+     * @param log The room's message log, which the room closes in {@link #closeMessageLog()}.
+     * @return The number of messages loaded from the log.
+     * @throws IOException if the log cannot be read.
+     */
+    public int attachMessageLog(MessageLog log) throws IOException {
+        synchronized (chatHistory) {
+            List<Message> logged = log.readLatest(chatHistory.getCapacity());
+            for (Message message : logged) {
+                chatHistory.append(message);
+            }
+            messageLog = log;
+            return logged.size();
+        }
+    }
+
+    /**
+     * Attaches a durable log lazily: {@code opener} is called, and its log attached as by
+     * {@link #attachMessageLog(MessageLog)}, the first time the room's history or log is used. Rooms that are
+     * only listed never touch their log files.
+     *
+     * @param opener Opens the room's message log; if it fails the room carries on without one.
+     */
+    public void setMessageLogOpener(Callable<MessageLog> opener) {
+        messageLogOpener = opener;
+    }
+
+    /**
+     * Retrieves the room's durable message log, opening it first if it is still pending.
+     *
+     * @return the attached log, or {@code null} if the room has none.
+     */
+    public MessageLog getMessageLog() {
+        openPendingMessageLog();
+        return messageLog;
+    }
+
+    private void openPendingMessageLog() {
+        if (messageLogOpener == null) {
+            return;
+        }
+        synchronized (chatHistory) {
+            Callable<MessageLog> opener = messageLogOpener;
+            if (opener == null) {
+                return; // Another thread opened it first.
+            }
+            messageLogOpener = null;
+            MessageLog log;
+            try {
+                log = opener.call();
+            } catch (Exception e) {
+                e.printStackTrace(); // The room still works, just without a durable history.
+                return;
+            }
+            try {
+                attachMessageLog(log);
+            } catch (IOException e) {
+                try {
+                    log.close();
+                } catch (IOException closeFailure) {
+                    e.addSuppressed(closeFailure);
+                }
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Detaches the room's message log, if any, and closes it, forcing its messages to disk first.
+     */
+    public void closeMessageLog() {
+        MessageLog log;
+        synchronized (deliveryLock) {
+            // Every message already in the history reaches the log before it is detached.
+            while (true) {
+                Message message;
+                synchronized (chatHistory) {
+                    message = undelivered.poll();
+                    if (message == null) {
+                        log = messageLog;
+                        messageLog = null;
+                        messageLogOpener = null; // Never opened, so there is nothing to close.
+                        break;
+                    }
+                }
+                deliver(message);
+            }
+        }
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void append(Message message) {
+        openPendingMessageLog();
+        synchronized (chatHistory) {
+            chatHistory.append(message);
+            undelivered.add(message);
+        }
+        // Whoever holds the delivery lock passes on everything queued, in history order. By the time this
+        // returns, this message has been logged and delivered, by this thread or an earlier one.
+        synchronized (deliveryLock) {
+            while (true) {
+                Message next;
+                synchronized (chatHistory) {
+                    next = undelivered.poll();
+                }
+                if (next == null) {
+                    return;
+                }
+                deliver(next);
+            }
+        }
+    }
+
+    /**
+     * Logs a message and passes it to every listener. Must hold {@link #deliveryLock}.
+     */
+    private void deliver(Message message) {
+        MessageLog log = messageLog;
+        if (log != null) {
+            try {
+                log.append(message);
+            } catch (IOException e) {
+                e.printStackTrace(); // Still deliver the message; only its durable copy is lost.
+            }
+        }
+        for (MessageListener listener : listeners) {
+            try {
+                listener.onMessage(message);
+            } catch (RuntimeException e) {
+                // One failing subscriber must not stop the message reaching the others, or the sender.
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Adds a participant to the chat room. Adding a user who is already a participant has no effect.
      *
      * @param user The {@code RegisterUser} to be added.
+     * @return {@code true} if the user was not already a participant.
      */
-    public void addParticipant(RegisterUser user) {
-        participants.add(user);
+    public boolean addParticipant(RegisterUser user) {
+        return participants.putIfAbsent(user.getUserId(), user) == null;
     }
 
     /**
      * Removes a participant from the chat room.
      *
      * @param user The {@code RegisterUser} to be removed.
+     * @return {@code true} if the user was a participant.
      */
-    public void removeParticipant(RegisterUser user) {
-        participants.remove(user);
+    public boolean removeParticipant(RegisterUser user) {
+        return participants.remove(user.getUserId()) != null;
     }
 
     /**
      * Sends an encrypted message to the chat room. The message is first encrypted
-     * using Caesar Cipher,
+     * using the room's {@link MessageCipher},
      * then added to the chat history and finally displayed to all participants of
      * the chat room.
      *
@@ -99,21 +402,30 @@ public class ChatRoom {
     // return encryptedMessage;
     // }
     public String sendMessage(User senderUser, String message) {
-        String encryptedMessage = CaesarCipher.encrypt(message, CIPHER_SHIFT);
+        return postMessage(senderUser, message).getBody();
+    }
 
-        // Get the current timestamp
-        LocalDateTime timestamp = LocalDateTime.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        String formattedTimestamp = timestamp.format(formatter);
-        System.err.println(formattedTimestamp);
-        String finalMessage = formattedTimestamp + "|" + senderUser.getName() + "|" + encryptedMessage;
+    /**
+     * Encrypts a message and adds it to the chat history, like {@link #sendMessage(User, String)},
+     * but returns the stored {@code Message} so callers can reuse its timestamp.
+     *
+     * @param senderUser The user sending the message.
+     * @param message    The plaintext message content.
+     * @return The stored message, whose body is the encrypted text.
+     */
+    public Message postMessage(User senderUser, String message) {
+        String encryptedMessage = cipher.encrypt(message);
+        Message sent = new Message(Message.UNSAVED_ID, chatRoomId, senderUser.getUserId(), senderUser.getName(),
+                System.currentTimeMillis(), encryptedMessage);
 
-        System.out.println();
-        System.out.println("Encrypted message : " + encryptedMessage);
+        if (DEBUG_MESSAGES) {
+            System.out.println();
+            System.out.println("Encrypted message : " + encryptedMessage);
+        }
 
-        chatHistory.add(finalMessage);
+        append(sent);
 
-        return encryptedMessage;
+        return sent;
     }
 
     /**
@@ -123,6 +435,7 @@ public class ChatRoom {
      *
      * @param receiverUser The user receiving the message.
      * @param message      The encrypted message content.
+     * @throws IllegalArgumentException if the cipher rejects the message as malformed or tampered with.
      */
     // public void receiveMessage(User receiverUser, String message) {
     //     String decryptedMessage = CaesarCipher.decrypt(message, CIPHER_SHIFT);
@@ -132,36 +445,46 @@ public class ChatRoom {
     //     chatHistory.add(finalMessage);
     // }
     public void receiveMessage(User receiverUser, String message) {
-        String decryptedMessage = CaesarCipher.decrypt(message, CIPHER_SHIFT);
-        
-        // Get the current timestamp
-        LocalDateTime timestamp = LocalDateTime.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        String formattedTimestamp = timestamp.format(formatter);
-        
-        String finalMessage = formattedTimestamp + "|" + receiverUser.getName() + "|" + decryptedMessage;
-        
-        System.out.println();
-        System.out.println("Decrypted Message : " + decryptedMessage);
-        
-        chatHistory.add(finalMessage);
+        String decryptedMessage = cipher.decrypt(message);
+
+        if (DEBUG_MESSAGES) {
+            System.out.println();
+            System.out.println("Decrypted Message : " + decryptedMessage);
+        }
+
+        append(new Message(Message.UNSAVED_ID, chatRoomId, receiverUser.getUserId(), receiverUser.getName(),
+                System.currentTimeMillis(), decryptedMessage));
     }
 
     /**
      * Attempts to persistently save the chat room's history to a specified file.
      * Each message is written
      * on a new line in the file.
+     * <p>
+     * If the room has a {@link MessageLog}, every message is already in it, so nothing is rewritten: the log
+     * is forced to disk and {@code pathname} is ignored.
+     * </p>
      *
      * @param pathname The destination path and filename for the chat history.
      * @return {@code true} if the chat history was successfully saved;
      *         {@code false} otherwise.
      */
     public boolean saveChatHistoryToFile(String pathname) {
+        MessageLog log = getMessageLog();
+        if (log != null) {
+            try {
+                log.sync();
+                return true; // Durable in the log
+            } catch (IOException e) {
+                e.printStackTrace();
+                return false; // Failed
+            }
+        }
         BufferedWriter bw;
         try {
             bw = new BufferedWriter(new FileWriter(pathname));
-            for (String string : chatHistory) {
-                bw.write(string);
+            for (Message message : chatHistory.snapshot()) {
+                bw.write(message.toString());
                 bw.newLine();
             }
             bw.close();
@@ -177,11 +500,28 @@ public class ChatRoom {
      * the file is added
      * to the chat room's history and displayed to participants.
      *
+     * <p>
+     * If the room has a {@link MessageLog}, the newest messages are read from the log instead, and
+     * {@code pathname} is ignored.
+     * </p>
+     *
      * @param pathname The source path and filename of the chat history to load.
      * @return {@code true} if the chat history was successfully loaded;
      *         {@code false} otherwise.
      */
     public boolean loadMessagesFromFile(String pathname) {
+        MessageLog log = getMessageLog();
+        if (log != null) {
+            try {
+                for (Message message : log.readLatest(chatHistory.getCapacity())) {
+                    System.out.println(message);
+                }
+                return true; // Loaded from the log
+            } catch (IOException e) {
+                e.printStackTrace();
+                return false; // Failed
+            }
+        }
         try (BufferedReader br = new BufferedReader(new FileReader(pathname))) {
             String text;
             while ((text = br.readLine()) != null) {
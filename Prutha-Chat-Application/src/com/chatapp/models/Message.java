@@ -0,0 +1,130 @@
+package com.chatapp.models;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * A chat message held in a {@link ChatRoom}'s history.
+ * <p>
+ * A message stores only its raw fields: IDs, the sender's display name, the send time as epoch
+ * milliseconds and the body exactly as it was added to the room (encrypted for sent messages,
+ * decrypted for received ones). Nothing is formatted when a message is created; the timestamp is
+ * turned into text only when the message is rendered, through one shared thread-safe formatter.
+ * </p>
+ * <p>
+ * Every field is fixed except the database ID: a message created in memory starts as {@link #UNSAVED_ID}
+ * and is given its ID once, by the message writer, when it has been stored.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+public final class Message {
+    /** ID used for messages that have not been assigned a database ID. */
+    public static final long UNSAVED_ID = 0L;
+
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    private volatile long messageId;
+    private final int chatRoomId;
+    private final int senderId;
+    private final String senderName;
+    private final long timestamp;
+    private final String body;
+
+    public Message(long messageId, int chatRoomId, int senderId, String senderName, long timestamp, String body) {
+        this.messageId = messageId;
+        this.chatRoomId = chatRoomId;
+        this.senderId = senderId;
+        this.senderName = senderName;
+        this.timestamp = timestamp;
+        this.body = body;
+    }
+
+    /**
+     * Retrieves the database ID of this message.
+     *
+     * @return the message ID, or {@link #UNSAVED_ID} if it has none yet.
+     */
+    public long getMessageId() {
+        return messageId;
+    }
+
+    /**
+     * Records the ID the message was stored under. Called once, after the insert has been committed.
+     *
+     * @param messageId The generated database ID.
+     * @throws IllegalStateException if the message already has an ID.
+     */
+    public void assignMessageId(long messageId) {
+        if (this.messageId != UNSAVED_ID) {
+            throw new IllegalStateException("Message already has ID " + this.messageId);
+        }
+        this.messageId = messageId;
+    }
+
+    /**
+     * Retrieves the ID of the chat room the message belongs to.
+     *
+     * @return the chat room ID.
+     */
+    public int getChatRoomId() {
+        return chatRoomId;
+    }
+
+    /**
+     * Retrieves the user ID of the message's author.
+     *
+     * @return the sender's user ID.
+     */
+    public int getSenderId() {
+        return senderId;
+    }
+
+    /**
+     * Retrieves the display name of the message's author.
+     *
+     * @return the sender's name.
+     */
+    public String getSenderName() {
+        return senderName;
+    }
+
+    /**
+     * Retrieves the time the message was sent.
+     *
+     * @return the send time in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Retrieves the message text.
+     *
+     * @return the message body.
+     */
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * Formats the send time as {@code yyyy-MM-dd HH:mm:ss} in the system time zone.
+     *
+     * @return the formatted timestamp.
+     */
+    public String getFormattedTimestamp() {
+        return TIMESTAMP_FORMATTER.format(Instant.ofEpochMilli(timestamp));
+    }
+
+    /**
+     * Formats the message as {@code timestamp|sender|body}, the layout used by saved history files.
+     *
+     * @return the formatted message.
+     */
+    @Override
+    public String toString() {
+        return getFormattedTimestamp() + "|" + senderName + "|" + body;
+    }
+}
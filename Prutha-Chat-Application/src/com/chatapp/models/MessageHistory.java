@@ -0,0 +1,207 @@
+package com.chatapp.models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-capacity, in-memory history of the most recent messages in a chat room.
+ * <p>
+ * Messages are kept in a ring buffer of {@code capacity} slots, so memory use per room is bounded no
+ * matter how busy it is. A message leaves the buffer when:
+ * <ul>
+ *     <li>the buffer is full and a newer message overwrites it (counted as a capacity eviction), or</li>
+ *     <li>it is older than {@code maxAgeMillis}, checked whenever a message is appended (counted as an
+ *     age eviction). A {@code maxAgeMillis} of {@code 0} disables age-based retention.</li>
+ * </ul>
+ * Evicted messages are not lost; they remain in the {@code message} table and can be paged back in
+ * through {@code ChatRoomManager.getMessagesBefore}.
+ * </p>
+ * <p>
+ * Appends are serialized on this object's monitor, so there is only ever one writer. Readers never lock:
+ * the writer publishes a new oldest sequence number ({@code tail}) before it overwrites or clears a slot,
+ * and a reader discards anything below the {@code tail} it sees after copying, so a snapshot never
+ * contains a message that was being replaced while it was read.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+public final class MessageHistory {
+    // Retries before a snapshot torn by a concurrent writer settles for the entries that were not replaced.
+    private static final int MAX_SNAPSHOT_ATTEMPTS = 3;
+
+    private final AtomicReferenceArray<Message> slots;
+    private final int capacity;
+    private final long maxAgeMillis;
+
+    // Sequence number of the next append and of the oldest retained message. Only the writer changes them.
+    private volatile long head;
+    private volatile long tail;
+
+    private volatile long evictedByCapacity;
+    private volatile long evictedByAge;
+
+    /**
+     * Creates an empty history.
+     *
+     * @param capacity     The maximum number of messages kept in memory.
+     * @param maxAgeMillis How long a message is kept in memory, or {@code 0} to keep it until it is overwritten.
+     * @throws IllegalArgumentException if {@code capacity} is not positive or {@code maxAgeMillis} is negative.
+     */
+    public MessageHistory(int capacity, long maxAgeMillis) {
+        if (capacity <= 0 || maxAgeMillis < 0) {
+            throw new IllegalArgumentException("Invalid history capacity or retention: " + capacity + ", " + maxAgeMillis);
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.capacity = capacity;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    /**
+     * Adds a message as the newest entry, evicting expired messages and, if the buffer is full, the oldest one.
+     *
+     * @param message The message to add.
+     */
+    synchronized void append(Message message) {
+        long seq = head;
+        if (maxAgeMillis > 0) {
+            expireOlderThan(seq, message.getTimestamp() - maxAgeMillis);
+        }
+        if (seq - tail >= capacity) {
+            // Publish the new tail before the slot is overwritten so readers drop the old entry.
+            tail = seq - capacity + 1;
+            evictedByCapacity++;
+        }
+        slots.set(index(seq), message);
+        head = seq + 1;
+    }
+
+    private void expireOlderThan(long seq, long cutoffMillis) {
+        long oldest = tail;
+        while (oldest < seq) {
+            Message message = slots.get(index(oldest));
+            if (message != null && message.getTimestamp() >= cutoffMillis) {
+                break;
+            }
+            tail = ++oldest;
+            slots.set(index(oldest - 1), null);
+            evictedByAge++;
+        }
+    }
+
+    /**
+     * Copies the retained messages, oldest first, without blocking the writer. Messages past the
+     * retention age are left out even if no append has evicted them yet. If the writer laps the copy
+     * repeatedly, the snapshot holds only the messages that were not replaced while it was taken.
+     *
+     * @return An unmodifiable snapshot of the history.
+     */
+    public List<Message> snapshot() {
+        return snapshot(capacity);
+    }
+
+    /**
+     * Copies at most the {@code limit} newest retained messages, oldest first, like {@link #snapshot()}
+     * but touching only those slots.
+     *
+     * @param limit The maximum number of messages to copy.
+     * @return An unmodifiable snapshot of the newest part of the history.
+     */
+    public List<Message> snapshot(int limit) {
+        int window = Math.max(0, Math.min(limit, capacity));
+        for (int attempt = 1; ; attempt++) {
+            // Read the tail before the head so the range can never be negative.
+            long oldest = tail;
+            long end = head;
+            long start = Math.max(oldest, end - window);
+            Message[] copy = new Message[(int) (end - start)];
+            for (long seq = start; seq < end; seq++) {
+                copy[(int) (seq - start)] = slots.get(index(seq));
+            }
+            // Anything below the tail seen now may have been overwritten or cleared while it was copied.
+            long firstValid = Math.min(Math.max(start, tail), end);
+            if (firstValid > start && attempt < MAX_SNAPSHOT_ATTEMPTS) {
+                continue;
+            }
+            long cutoffMillis = maxAgeMillis > 0 ? System.currentTimeMillis() - maxAgeMillis : Long.MIN_VALUE;
+
+            List<Message> messages = new ArrayList<>((int) (end - firstValid));
+            for (long seq = firstValid; seq < end; seq++) {
+                Message message = copy[(int) (seq - start)];
+                if (message != null && message.getTimestamp() >= cutoffMillis) {
+                    messages.add(message);
+                }
+            }
+            return Collections.unmodifiableList(messages);
+        }
+    }
+
+    /**
+     * Retrieves the oldest message still held in memory, which is the cursor for paging older messages
+     * in from storage.
+     *
+     * @return The oldest retained message, or {@code null} if the history is empty.
+     */
+    public Message getOldest() {
+        List<Message> messages = snapshot();
+        return messages.isEmpty() ? null : messages.get(0);
+    }
+
+    /**
+     * @return the number of messages currently held, at most {@link #getCapacity()}.
+     */
+    public int size() {
+        long oldest = tail;
+        long end = head;
+        return (int) (end - Math.max(oldest, end - capacity));
+    }
+
+    /**
+     * @return the maximum number of messages kept in memory.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return how long messages are kept in memory, or {@code 0} if only capacity limits retention.
+     */
+    public long getMaxAgeMillis() {
+        return maxAgeMillis;
+    }
+
+    /**
+     * @return the total number of messages ever appended.
+     */
+    public long getAppendedCount() {
+        return head;
+    }
+
+    /**
+     * @return the number of messages overwritten because the buffer was full.
+     */
+    public long getEvictedByCapacity() {
+        return evictedByCapacity;
+    }
+
+    /**
+     * @return the number of messages dropped because they were older than the retention age.
+     */
+    public long getEvictedByAge() {
+        return evictedByAge;
+    }
+
+    private int index(long seq) {
+        return (int) (seq % capacity);
+    }
+
+    @Override
+    public String toString() {
+        return "MessageHistory{size=" + size() + "/" + capacity
+                + ", maxAgeMillis=" + maxAgeMillis
+                + ", appended=" + getAppendedCount()
+                + ", evictedByCapacity=" + evictedByCapacity
+                + ", evictedByAge=" + evictedByAge + "}";
+    }
+}
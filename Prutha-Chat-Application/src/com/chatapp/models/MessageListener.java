@@ -0,0 +1,23 @@
+package com.chatapp.models;
+
+/**
+ * Receives each message added to a {@link ChatRoom}'s history, as it is added.
+ * <p>
+ * Listeners are called after the message is in the history, one message at a time and in history order,
+ * on the thread that added it or on another thread adding a message to the same room at the same time.
+ * The history's lock is not held, but the room's next messages are not logged or delivered until every
+ * listener has returned, so listeners must return quickly and must not block: a UI, for example, should
+ * queue the message and render it on its own thread.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+@FunctionalInterface
+public interface MessageListener {
+    /**
+     * Called after a message was added to the chat room's history.
+     *
+     * @param message The new message.
+     */
+    void onMessage(Message message);
+}
@@ -0,0 +1,69 @@
+package com.chatapp.models;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a chat room's stored history, returned by keyset pagination on the message ID.
+ * <p>
+ * A page holds its messages oldest first. To load the page before it, pass {@link #getNextCursor()} as
+ * the {@code beforeMessageId} of the next request; because the cursor is a message ID rather than an
+ * offset, every page costs the same index range scan however far back it is, and messages sent while
+ * paging never shift or repeat entries.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+public final class MessagePage {
+    /** Cursor that starts paging at the newest stored message. */
+    public static final long LATEST = Long.MAX_VALUE;
+
+    private final List<Message> messages;
+    private final long nextCursor;
+    private final boolean hasMore;
+
+    /**
+     * @param messages The messages on the page, oldest first.
+     * @param hasMore  Whether older messages exist before the first one on the page.
+     */
+    public MessagePage(List<Message> messages, boolean hasMore) {
+        this.messages = Collections.unmodifiableList(messages);
+        this.nextCursor = messages.isEmpty() ? Message.UNSAVED_ID : messages.get(0).getMessageId();
+        this.hasMore = hasMore;
+    }
+
+    /**
+     * @return the messages on this page, oldest first.
+     */
+    public List<Message> getMessages() {
+        return messages;
+    }
+
+    /**
+     * Retrieves the cursor for the page before this one, which is the ID of this page's oldest message.
+     *
+     * @return the cursor, or {@link Message#UNSAVED_ID} if this page is empty.
+     */
+    public long getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * @return {@code true} if there are older messages than the ones on this page.
+     */
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    /**
+     * @return {@code true} if this page has no messages.
+     */
+    public boolean isEmpty() {
+        return messages.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "MessagePage{size=" + messages.size() + ", nextCursor=" + nextCursor + ", hasMore=" + hasMore + "}";
+    }
+}
@@ -0,0 +1,131 @@
+package com.chatapp.server;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A decoded binary frame, filled in place by {@link BinaryFrameCodec#decode(ByteBuffer, BinaryFrame)}.
+ * <p>
+ * Text fields are exposed as read-only slices of the buffer the frame was decoded from, so decoding
+ * allocates no {@code String}s. The slices are only valid until that buffer is compacted or refilled;
+ * copy anything that must outlive the current read.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+public final class BinaryFrame {
+    private int version;
+    private byte type;
+    private int chatRoomId;
+    private int userId;
+    private long epochMillis;
+    private ByteBuffer text;
+    private ByteBuffer secondText;
+
+    void reset(int version, byte type) {
+        this.version = version;
+        this.type = type;
+        this.chatRoomId = 0;
+        this.userId = 0;
+        this.epochMillis = 0;
+        this.text = null;
+        this.secondText = null;
+    }
+
+    void setChatRoomId(int chatRoomId) {
+        this.chatRoomId = chatRoomId;
+    }
+
+    void setUserId(int userId) {
+        this.userId = userId;
+    }
+
+    void setEpochMillis(long epochMillis) {
+        this.epochMillis = epochMillis;
+    }
+
+    void setText(ByteBuffer text) {
+        this.text = text;
+    }
+
+    void setSecondText(ByteBuffer secondText) {
+        this.secondText = secondText;
+    }
+
+    /**
+     * @return the protocol version in the frame header.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return one of the {@code TYPE_*} constants in {@link BinaryFrameCodec}.
+     */
+    public byte getType() {
+        return type;
+    }
+
+    /**
+     * @return the chat room ID of a {@code JOIN} or {@code MESSAGE} frame.
+     */
+    public int getChatRoomId() {
+        return chatRoomId;
+    }
+
+    /**
+     * @return the sender's user ID of a {@code MESSAGE} frame.
+     */
+    public int getUserId() {
+        return userId;
+    }
+
+    /**
+     * @return the send time of a {@code MESSAGE} frame, in epoch milliseconds.
+     */
+    public long getEpochMillis() {
+        return epochMillis;
+    }
+
+    /**
+     * @return the UTF-8 bytes of the message text, status text or username, or {@code null}.
+     */
+    public ByteBuffer getText() {
+        return text == null ? null : text.duplicate();
+    }
+
+    /**
+     * @return the UTF-8 bytes of the password in a {@code LOGIN} frame, or {@code null}.
+     */
+    public ByteBuffer getSecondText() {
+        return secondText == null ? null : secondText.duplicate();
+    }
+
+    /**
+     * Decodes {@link #getText()} into a string, for callers that need one.
+     *
+     * @return The text, or an empty string if the frame has none.
+     */
+    public String textAsString() {
+        return asString(text);
+    }
+
+    /**
+     * Decodes {@link #getSecondText()} into a string, for callers that need one.
+     *
+     * @return The text, or an empty string if the frame has none.
+     */
+    public String secondTextAsString() {
+        return asString(secondText);
+    }
+
+    private static String asString(ByteBuffer utf8) {
+        if (utf8 == null) {
+            return "";
+        }
+        ByteBuffer view = utf8.duplicate();
+        byte[] bytes = new byte[view.remaining()];
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
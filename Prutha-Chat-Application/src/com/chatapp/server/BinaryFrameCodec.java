@@ -0,0 +1,327 @@
+package com.chatapp.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encoder and decoder for the compact binary chat protocol.
+ * <p>
+ * Every frame starts with a fixed header followed by a type-specific body:
+ * <pre>
+ *   magic    1 byte   0xCA (never the first byte of a text frame, so both protocols share a port)
+ *   version  1 byte   protocol version, negotiated with a HELLO frame
+ *   type     1 byte   one of the TYPE_* constants
+ *   length   varint   number of body bytes that follow
+ *   body     length bytes
+ * </pre>
+ * Body layouts:
+ * <ul>
+ *     <li>{@code HELLO} - empty; the header version is the highest version the sender speaks</li>
+ *     <li>{@code LOGIN} - varint username length, username, password (rest of body), all UTF-8</li>
+ *     <li>{@code JOIN} - varint chat room ID</li>
+ *     <li>{@code MESSAGE} - varint chat room ID, varint sender user ID, 8-byte epoch milliseconds,
+ *     UTF-8 text (rest of body)</li>
+ *     <li>{@code OK} / {@code ERROR} - UTF-8 status text</li>
+ *     <li>{@code LEAVE} / {@code QUIT} - empty</li>
+ * </ul>
+ * Varints are unsigned LEB128. Encoding writes UTF-8 straight from the {@code CharSequence} into the
+ * buffer and decoding hands back buffer slices, so neither direction creates intermediate strings.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+public final class BinaryFrameCodec {
+    public static final byte MAGIC = (byte) 0xCA;
+    public static final int MIN_VERSION = 1;
+    public static final int CURRENT_VERSION = 1;
+
+    public static final byte TYPE_HELLO = 1;
+    public static final byte TYPE_LOGIN = 2;
+    public static final byte TYPE_JOIN = 3;
+    public static final byte TYPE_MESSAGE = 4;
+    public static final byte TYPE_LEAVE = 5;
+    public static final byte TYPE_QUIT = 6;
+    public static final byte TYPE_OK = 7;
+    public static final byte TYPE_ERROR = 8;
+
+    private static final int FIXED_HEADER_BYTES = 3;
+    private static final int MAX_VARINT_BYTES = 5;
+    /** Longest header a frame can have: the fixed bytes plus a length varint of up to five bytes. */
+    static final int MAX_HEADER_BYTES = FIXED_HEADER_BYTES + MAX_VARINT_BYTES;
+
+    private BinaryFrameCodec() {
+    }
+
+    /**
+     * Encodes a {@code HELLO} frame announcing the given protocol version.
+     */
+    public static ByteBuffer encodeHello(int version) {
+        return encodeEmpty(version, TYPE_HELLO);
+    }
+
+    /**
+     * Encodes a body-less frame such as {@code LEAVE} or {@code QUIT}.
+     */
+    public static ByteBuffer encodeEmpty(int version, byte type) {
+        ByteBuffer out = ByteBuffer.allocate(FIXED_HEADER_BYTES + 1);
+        writeHeader(out, version, type, 0);
+        return out.flip();
+    }
+
+    /**
+     * Encodes a {@code LOGIN} frame.
+     */
+    public static ByteBuffer encodeLogin(int version, CharSequence username, CharSequence password) {
+        int usernameBytes = utf8Length(username);
+        int bodyLength = varintLength(usernameBytes) + usernameBytes + utf8Length(password);
+        ByteBuffer out = allocate(bodyLength);
+        writeHeader(out, version, TYPE_LOGIN, bodyLength);
+        writeVarint(out, usernameBytes);
+        writeUtf8(out, username);
+        writeUtf8(out, password);
+        return out.flip();
+    }
+
+    /**
+     * Encodes a {@code JOIN} frame.
+     */
+    public static ByteBuffer encodeJoin(int version, int chatRoomId) {
+        int bodyLength = varintLength(chatRoomId);
+        ByteBuffer out = allocate(bodyLength);
+        writeHeader(out, version, TYPE_JOIN, bodyLength);
+        writeVarint(out, chatRoomId);
+        return out.flip();
+    }
+
+    /**
+     * Encodes an {@code OK} or {@code ERROR} frame.
+     */
+    public static ByteBuffer encodeStatus(int version, boolean ok, CharSequence text) {
+        int bodyLength = utf8Length(text);
+        ByteBuffer out = allocate(bodyLength);
+        writeHeader(out, version, ok ? TYPE_OK : TYPE_ERROR, bodyLength);
+        writeUtf8(out, text);
+        return out.flip();
+    }
+
+    /**
+     * Encodes a {@code MESSAGE} frame into a new, exactly sized buffer.
+     *
+     * @return The frame, in read mode.
+     */
+    public static ByteBuffer encodeMessage(int version, int chatRoomId, int senderId, long epochMillis, CharSequence text) {
+        ByteBuffer out = allocate(messageBodyLength(chatRoomId, senderId, text));
+        encodeMessage(out, version, chatRoomId, senderId, epochMillis, text);
+        return out.flip();
+    }
+
+    /**
+     * Encodes a {@code MESSAGE} frame into a caller-supplied buffer, starting at its position.
+     *
+     * @param out A buffer in write mode with enough room for the frame.
+     * @throws java.nio.BufferOverflowException if the frame does not fit.
+     */
+    public static void encodeMessage(ByteBuffer out, int version, int chatRoomId, int senderId,
+                                     long epochMillis, CharSequence text) {
+        writeHeader(out, version, TYPE_MESSAGE, messageBodyLength(chatRoomId, senderId, text));
+        writeVarint(out, chatRoomId);
+        writeVarint(out, senderId);
+        out.putLong(epochMillis);
+        writeUtf8(out, text);
+    }
+
+    private static int messageBodyLength(int chatRoomId, int senderId, CharSequence text) {
+        return varintLength(chatRoomId) + varintLength(senderId) + Long.BYTES + utf8Length(text);
+    }
+
+    /**
+     * Decodes the next complete frame from the buffer into {@code frame}.
+     *
+     * @param in    A buffer in read mode. Its position moves past the frame only if a whole frame is present.
+     * @param frame The frame to fill in.
+     * @return {@code true} if a frame was decoded, {@code false} if more bytes are needed.
+     * @throws IOException if the bytes are not a valid frame.
+     */
+    public static boolean decode(ByteBuffer in, BinaryFrame frame) throws IOException {
+        int start = in.position();
+        if (in.remaining() < FIXED_HEADER_BYTES + 1) {
+            return false;
+        }
+        if (in.get() != MAGIC) {
+            throw new IOException("Bad frame magic");
+        }
+        int version = in.get() & 0xFF;
+        byte type = in.get();
+        int bodyLength = readVarint(in, start);
+        if (bodyLength < 0) {
+            return false;
+        }
+        if (bodyLength > Frames.MAX_FRAME_BYTES) {
+            throw new IOException("Frame too large: " + bodyLength + " bytes");
+        }
+        if (in.remaining() < bodyLength) {
+            in.position(start);
+            return false;
+        }
+        int bodyEnd = in.position() + bodyLength;
+        ByteBuffer body = in.slice();
+        body.limit(bodyLength);
+        in.position(bodyEnd);
+
+        frame.reset(version, type);
+        switch (type) {
+            case TYPE_HELLO:
+            case TYPE_LEAVE:
+            case TYPE_QUIT:
+                break;
+            case TYPE_LOGIN:
+                int usernameBytes = readBodyVarint(body);
+                if (usernameBytes > body.remaining()) {
+                    throw new IOException("Malformed LOGIN frame");
+                }
+                frame.setText(slice(body, usernameBytes));
+                frame.setSecondText(slice(body, body.remaining()));
+                break;
+            case TYPE_JOIN:
+                frame.setChatRoomId(readBodyVarint(body));
+                break;
+            case TYPE_MESSAGE:
+                frame.setChatRoomId(readBodyVarint(body));
+                frame.setUserId(readBodyVarint(body));
+                if (body.remaining() < Long.BYTES) {
+                    throw new IOException("Malformed MESSAGE frame");
+                }
+                frame.setEpochMillis(body.getLong());
+                frame.setText(slice(body, body.remaining()));
+                break;
+            case TYPE_OK:
+            case TYPE_ERROR:
+                frame.setText(slice(body, body.remaining()));
+                break;
+            default:
+                throw new IOException("Unknown frame type: " + type);
+        }
+        return true;
+    }
+
+    private static ByteBuffer slice(ByteBuffer body, int length) {
+        ByteBuffer slice = body.slice();
+        slice.limit(length);
+        body.position(body.position() + length);
+        return slice.asReadOnlyBuffer();
+    }
+
+    private static ByteBuffer allocate(int bodyLength) {
+        if (bodyLength > Frames.MAX_FRAME_BYTES) {
+            throw new IllegalArgumentException("Frame too large: " + bodyLength + " bytes");
+        }
+        return ByteBuffer.allocate(FIXED_HEADER_BYTES + varintLength(bodyLength) + bodyLength);
+    }
+
+    private static void writeHeader(ByteBuffer out, int version, byte type, int bodyLength) {
+        out.put(MAGIC).put((byte) version).put(type);
+        writeVarint(out, bodyLength);
+    }
+
+    /**
+     * Reads a varint from the frame header, rewinding to {@code start} if it is incomplete.
+     *
+     * @return The value, or {@code -1} if more bytes are needed.
+     */
+    private static int readVarint(ByteBuffer in, int start) throws IOException {
+        int value = 0;
+        for (int shift = 0, i = 0; i < MAX_VARINT_BYTES; i++, shift += 7) {
+            if (!in.hasRemaining()) {
+                in.position(start);
+                return -1;
+            }
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                if (value < 0) {
+                    throw new IOException("Varint out of range");
+                }
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static int readBodyVarint(ByteBuffer body) throws IOException {
+        int value = readVarint(body, body.position());
+        if (value < 0) {
+            throw new IOException("Truncated varint");
+        }
+        return value;
+    }
+
+    static void writeVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static int varintLength(int value) {
+        int length = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Counts the UTF-8 bytes needed for the text without encoding it.
+     */
+    static int utf8Length(CharSequence text) {
+        int length = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1; // Unpaired surrogate, written as '?'
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Writes the text as UTF-8 directly into the buffer. Unpaired surrogates become {@code '?'}, matching
+     * {@link String#getBytes(java.nio.charset.Charset)}.
+     */
+    static void writeUtf8(ByteBuffer out, CharSequence text) {
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | (c >> 6)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                    out.put((byte) (0xF0 | (codePoint >> 18)));
+                    out.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                    out.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                    out.put((byte) (0x80 | (codePoint & 0x3F)));
+                } else {
+                    out.put((byte) '?');
+                }
+            } else {
+                out.put((byte) (0xE0 | (c >> 12)));
+                out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.chatapp.server;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A client connection served in the thread-per-connection modes.
+ * <p>
+ * One thread reads frames with plain blocking I/O and runs each command inline, so login, joins and
+ * message persistence keep the same sequential style as {@code UserManager} and {@code ChatRoomManager}.
+ * A second thread drains the outbound queue, so a slow reader only ever blocks its own writer and
+ * never the thread broadcasting to it. With virtual threads both are cheap enough to keep per client.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+class BlockingClientSession extends ClientSession {
+    // A client that falls this far behind is disconnected instead of buffering forever.
+    private static final long MAX_OUTBOUND_BYTES = 1024 * 1024;
+    private static final ByteBuffer CLOSE_SIGNAL = ByteBuffer.allocate(0);
+
+    private final ChatServer server;
+    private final SocketChannel channel;
+    private final LinkedBlockingQueue<ByteBuffer> outbound = new LinkedBlockingQueue<>();
+    private final AtomicLong outboundBytes = new AtomicLong();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    BlockingClientSession(ChatServer server, SocketChannel channel) {
+        this.server = server;
+        this.channel = channel;
+    }
+
+    /**
+     * Reads and handles frames until the client disconnects. Runs on the session's own thread.
+     */
+    void readLoop() {
+        ByteBuffer buffer = ByteBuffer.allocate(Frames.INITIAL_READ_BUFFER_BYTES);
+        try {
+            while (!closed.get()) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException();
+                }
+                buffer.flip();
+                Runnable command;
+                while ((command = nextCommand(server, buffer)) != null) {
+                    command.run();
+                    CompletableFuture<?> hold = takeCommandHold();
+                    if (hold != null) {
+                        hold.handle((result, error) -> null).join(); // This thread is the session's own.
+                    }
+                }
+                buffer = Frames.compactReadBuffer(buffer, Frames.INITIAL_READ_BUFFER_BYTES);
+            }
+        } catch (IOException e) {
+            // Client went away or sent a bad frame.
+        } finally {
+            server.closeSession(this);
+        }
+    }
+
+    /**
+     * Writes queued frames until the session closes. Runs on the session's writer thread.
+     */
+    void writeLoop() {
+        try {
+            while (true) {
+                ByteBuffer frame = outbound.take();
+                if (frame == CLOSE_SIGNAL) {
+                    return;
+                }
+                int length = frame.remaining();
+                while (frame.hasRemaining()) {
+                    channel.write(frame);
+                }
+                outboundBytes.addAndGet(-length);
+            }
+        } catch (IOException e) {
+            server.closeSession(this);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void send(ByteBuffer frame) {
+        if (closed.get()) {
+            return;
+        }
+        ByteBuffer copy = frame.duplicate();
+        if (outboundBytes.addAndGet(copy.remaining()) > MAX_OUTBOUND_BYTES) {
+            System.err.println("Disconnecting slow client " + describe());
+            server.closeSession(this);
+            return;
+        }
+        outbound.add(copy);
+    }
+
+    @Override
+    boolean close() {
+        if (!closed.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        outbound.clear();
+        outbound.add(CLOSE_SIGNAL);
+        return true;
+    }
+
+    @Override
+    String describe() {
+        try {
+            return String.valueOf(channel.getRemoteAddress());
+        } catch (IOException e) {
+            return "<closed>";
+        }
+    }
+
+    @Override
+    String remoteHost() {
+        try {
+            SocketAddress address = channel.getRemoteAddress();
+            return address instanceof InetSocketAddress
+                    ? ((InetSocketAddress) address).getAddress().getHostAddress() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.chatapp.server;
+
+import com.chatapp.utils.MessageCipher;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Scanner;
+
+/**
+ * Minimal command-line client for {@link ChatServer}.
+ * <p>
+ * Each line typed is sent as one frame (for example {@code LOGIN alice secret}, {@code JOIN 3},
+ * {@code SAY hello}). A background thread prints everything the server pushes, decrypting the
+ * message text of {@code MSG} frames. With {@code --binary} the same commands are sent using the
+ * {@link BinaryFrameCodec} protocol, after negotiating a version with a {@code HELLO} frame.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+public class ChatClient {
+    // Must match the server's chatapp.cipher settings to read its messages.
+    private static final MessageCipher CIPHER = MessageCipher.fromSystemProperties();
+
+    /**
+     * Connects to a chat server.
+     *
+     * @param args Optional host and port, defaulting to {@code localhost} and {@link ChatServer#DEFAULT_PORT},
+     *             optionally followed by {@code --binary}.
+     * @throws IOException if the connection fails.
+     */
+    public static void main(String[] args) throws IOException {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : ChatServer.DEFAULT_PORT;
+        boolean binary = args.length > 2 && args[2].equals("--binary");
+
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port))) {
+            Thread reader = new Thread(() -> readFrames(channel, binary), "chat-client-reader");
+            reader.setDaemon(true);
+            reader.start();
+
+            if (binary) {
+                write(channel, BinaryFrameCodec.encodeHello(BinaryFrameCodec.CURRENT_VERSION));
+            }
+            Scanner scanner = new Scanner(System.in);
+            while (scanner.hasNextLine()) {
+                String line = scanner.nextLine().trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                ByteBuffer frame = binary ? encodeBinary(line) : Frames.encode(line);
+                if (frame == null) {
+                    System.out.println("Commands: LOGIN <username> <password>, JOIN <chatRoomId>, SAY <message>, LEAVE, QUIT");
+                    continue;
+                }
+                write(channel, frame);
+                if (line.equals("QUIT")) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private static void write(SocketChannel channel, ByteBuffer frame) throws IOException {
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+    }
+
+    private static ByteBuffer encodeBinary(String line) {
+        int version = BinaryFrameCodec.CURRENT_VERSION;
+        String[] parts = line.split(" ", 2);
+        String argument = parts.length > 1 ? parts[1] : "";
+        switch (parts[0]) {
+            case "LOGIN":
+                String[] credentials = argument.split(" ", 2);
+                return credentials.length < 2 ? null : BinaryFrameCodec.encodeLogin(version, credentials[0], credentials[1]);
+            case "JOIN":
+                try {
+                    return BinaryFrameCodec.encodeJoin(version, Integer.parseInt(argument.trim()));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            case "SAY":
+                // The server fills in the room and sender from the session.
+                return BinaryFrameCodec.encodeMessage(version, 0, 0, System.currentTimeMillis(), argument);
+            case "LEAVE":
+                return BinaryFrameCodec.encodeEmpty(version, BinaryFrameCodec.TYPE_LEAVE);
+            case "QUIT":
+                return BinaryFrameCodec.encodeEmpty(version, BinaryFrameCodec.TYPE_QUIT);
+            default:
+                return null;
+        }
+    }
+
+    private static void readFrames(SocketChannel channel, boolean binary) {
+        ByteBuffer buffer = ByteBuffer.allocate(Frames.maxFrameSize());
+        BinaryFrame frame = new BinaryFrame();
+        try {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                if (binary) {
+                    while (BinaryFrameCodec.decode(buffer, frame)) {
+                        System.out.println(render(frame));
+                    }
+                } else {
+                    String payload;
+                    while ((payload = Frames.decode(buffer)) != null) {
+                        System.out.println(render(payload));
+                    }
+                }
+                buffer.compact();
+            }
+        } catch (IOException e) {
+            // Connection closed.
+        }
+        System.out.println("Disconnected.");
+    }
+
+    private static String render(BinaryFrame frame) {
+        switch (frame.getType()) {
+            case BinaryFrameCodec.TYPE_HELLO:
+                return "Using protocol version " + frame.getVersion();
+            case BinaryFrameCodec.TYPE_OK:
+                return "OK " + frame.textAsString();
+            case BinaryFrameCodec.TYPE_ERROR:
+                return "ERR " + frame.textAsString();
+            case BinaryFrameCodec.TYPE_MESSAGE:
+                return "user#" + frame.getUserId() + " : " + decrypt(frame.textAsString());
+            default:
+                return "Unexpected frame type " + frame.getType();
+        }
+    }
+
+    private static String render(String payload) {
+        if (!payload.startsWith("MSG ")) {
+            return payload;
+        }
+        // MSG <chatRoomId> <epochMillis> <senderName> <encryptedMessage>
+        String[] parts = payload.split(" ", 5);
+        if (parts.length < 5) {
+            return payload;
+        }
+        return parts[3] + " : " + decrypt(parts[4]);
+    }
+
+    /**
+     * Decrypts a message body, or returns a placeholder if it cannot be, for example because it was
+     * tampered with or the client's {@code chatapp.cipher} settings differ from the server's. One bad
+     * message must not stop the reader thread.
+     */
+    private static String decrypt(String ciphertext) {
+        try {
+            return CIPHER.decrypt(ciphertext);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return "[undecryptable message]";
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.chatapp.server;
+
+import com.chatapp.utils.MessageCipher;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Load generator for {@link ChatServer}, for comparing its {@link ServerMode}s under the same load.
+ * <p>
+ * It opens {@code connections} text protocol clients, logs client {@code n} in as
+ * {@code <chatapp.load.userPrefix><n>} and joins it to one of the {@code chatapp.load.rooms} in turn. Once
+ * every client is in a room, each one sends {@code messages} {@code SAY} commands in a closed loop: the
+ * next is sent when the client sees its previous message broadcast back to it. A message's latency is
+ * the time from its {@code SAY} to that echo, so it covers the server's command dispatch, the room
+ * history and the fan-out to every member of the room.
+ * </p>
+ * <p>
+ * At the end it prints the message throughput, the p50, p99 and maximum latency and how many broadcast
+ * frames were delivered in total. The users and rooms must exist, and the server's login limits
+ * ({@code chatapp.login.*}) must allow that many logins from one address. All clients run on one selector
+ * thread, so the driver itself needs only a little CPU.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+public class ChatLoadDriver {
+    // Must match the server's chatapp.cipher settings to recognise echoed messages.
+    private static final MessageCipher CIPHER = MessageCipher.fromSystemProperties();
+
+    // Tuning; each value can be overridden with a -D system property of the same name.
+    private static final String USER_PREFIX = System.getProperty("chatapp.load.userPrefix", "load");
+    private static final String PASSWORD = System.getProperty("chatapp.load.password", "password");
+    private static final String ROOMS = System.getProperty("chatapp.load.rooms", "1");
+    private static final int MAX_PENDING_LOGINS = Integer.getInteger("chatapp.load.maxPendingLogins", 16);
+    private static final long LOGIN_RETRY_MILLIS = Long.getLong("chatapp.load.loginRetryMillis", 50);
+    private static final long TIMEOUT_MILLIS = Long.getLong("chatapp.load.timeoutMillis", 300_000);
+
+    private enum State { WAITING_TO_LOG_IN, LOGGING_IN, JOINING, JOINED, SAYING, DONE }
+
+    private final int messages;
+    private final int[] rooms;
+    private final Selector selector;
+    private final List<Client> clients = new ArrayList<>();
+    private final Deque<Client> loginQueue = new ArrayDeque<>();
+    private final long[] latencies;
+    private int latencyCount;
+    private int pendingLogins;
+    private int joined;
+    private int done;
+    private long deliveredFrames;
+    private long errors;
+
+    private ChatLoadDriver(int messages, int[] rooms, int connections) throws IOException {
+        this.messages = messages;
+        this.rooms = rooms;
+        this.selector = Selector.open();
+        this.latencies = new long[connections * messages];
+    }
+
+    /**
+     * Runs one load test and prints its results.
+     *
+     * @param args Optional host, port, number of connections and messages per connection, defaulting to
+     *             {@code localhost}, {@link ChatServer#DEFAULT_PORT}, 100 and 20.
+     * @throws IOException if a connection fails.
+     */
+    public static void main(String[] args) throws IOException {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : ChatServer.DEFAULT_PORT;
+        int connections = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        int messages = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        int[] rooms = Arrays.stream(ROOMS.split(",")).mapToInt(room -> Integer.parseInt(room.trim())).toArray();
+
+        ChatLoadDriver driver = new ChatLoadDriver(messages, rooms, connections);
+        driver.connect(new InetSocketAddress(host, port), connections);
+        driver.run();
+    }
+
+    private void connect(InetSocketAddress address, int connections) throws IOException {
+        for (int i = 0; i < connections; i++) {
+            SocketChannel channel = SocketChannel.open(address);
+            channel.configureBlocking(false);
+            Client client = new Client(i, channel, rooms[i % rooms.length]);
+            client.key = channel.register(selector, SelectionKey.OP_READ, client);
+            clients.add(client);
+            loginQueue.add(client);
+        }
+    }
+
+    private void run() throws IOException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        long sayStart = 0;
+        while (done < clients.size()) {
+            if (System.currentTimeMillis() > deadline) {
+                System.err.println("Timed out with " + done + " of " + clients.size() + " clients finished");
+                break;
+            }
+            startLogins();
+            if (sayStart == 0 && joined == clients.size()) {
+                sayStart = System.nanoTime();
+                for (Client client : clients) {
+                    say(client);
+                }
+            }
+            selector.select(10);
+            for (SelectionKey key : selector.selectedKeys()) {
+                Client client = (Client) key.attachment();
+                if (key.isWritable()) {
+                    flush(client);
+                }
+                if (key.isReadable()) {
+                    read(client);
+                }
+            }
+            selector.selectedKeys().clear();
+        }
+        long elapsedNanos = System.nanoTime() - (sayStart == 0 ? System.nanoTime() : sayStart);
+        for (Client client : clients) {
+            client.channel.close();
+        }
+        report(elapsedNanos);
+    }
+
+    private void startLogins() throws IOException {
+        long now = System.currentTimeMillis();
+        while (pendingLogins < MAX_PENDING_LOGINS && !loginQueue.isEmpty() && loginQueue.peek().retryAt <= now) {
+            Client client = loginQueue.poll();
+            client.state = State.LOGGING_IN;
+            pendingLogins++;
+            send(client, "LOGIN " + USER_PREFIX + client.index + " " + PASSWORD);
+        }
+    }
+
+    private void read(Client client) throws IOException {
+        if (client.channel.read(client.readBuffer) < 0) {
+            throw new IOException("Server closed connection of client " + client.index);
+        }
+        client.readBuffer.flip();
+        String payload;
+        while ((payload = Frames.decode(client.readBuffer)) != null) {
+            onFrame(client, payload);
+        }
+        client.readBuffer.compact();
+    }
+
+    private void onFrame(Client client, String payload) throws IOException {
+        if (payload.startsWith("MSG ")) {
+            deliveredFrames++;
+            // MSG <chatRoomId> <epochMillis> <senderName> <encryptedMessage>
+            String[] parts = payload.split(" ", 5);
+            if (client.state == State.SAYING && parts.length == 5
+                    && CIPHER.decrypt(parts[4]).equals(token(client, client.sent))) {
+                latencies[latencyCount++] = System.nanoTime() - client.sentAt;
+                say(client);
+            }
+            return;
+        }
+        boolean ok = payload.startsWith("OK ");
+        switch (client.state) {
+            case LOGGING_IN:
+                pendingLogins--;
+                if (ok) {
+                    client.state = State.JOINING;
+                    send(client, "JOIN " + client.roomId);
+                } else {
+                    // Throttled or the password pool is full; try again shortly.
+                    client.state = State.WAITING_TO_LOG_IN;
+                    client.retryAt = System.currentTimeMillis() + LOGIN_RETRY_MILLIS;
+                    loginQueue.add(client);
+                }
+                break;
+            case JOINING:
+                if (!ok) {
+                    throw new IOException("Client " + client.index + " could not join: " + payload);
+                }
+                client.state = State.JOINED;
+                joined++;
+                break;
+            default:
+                if (!ok) {
+                    errors++;
+                }
+        }
+    }
+
+    private void say(Client client) throws IOException {
+        if (client.sent == messages) {
+            client.state = State.DONE;
+            done++;
+            return;
+        }
+        client.state = State.SAYING;
+        client.sent++;
+        client.sentAt = System.nanoTime();
+        send(client, "SAY " + token(client, client.sent));
+    }
+
+    private static String token(Client client, int sequence) {
+        return "load " + client.index + " " + sequence;
+    }
+
+    private void send(Client client, String payload) throws IOException {
+        client.outbound.add(Frames.encode(payload));
+        flush(client);
+    }
+
+    private void flush(Client client) throws IOException {
+        ByteBuffer head;
+        while ((head = client.outbound.peek()) != null) {
+            client.channel.write(head);
+            if (head.hasRemaining()) {
+                client.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                return;
+            }
+            client.outbound.poll();
+        }
+        client.key.interestOps(SelectionKey.OP_READ);
+    }
+
+    private void report(long elapsedNanos) {
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("connections=%d rooms=%d messages=%d in %.2f s: %.0f msg/s, %d broadcast frames delivered,"
+                        + " %d errors%n", clients.size(), rooms.length, latencyCount, seconds,
+                latencyCount / Math.max(seconds, 1e-9), deliveredFrames, errors);
+        if (latencyCount > 0) {
+            System.out.printf("latency p50=%.2f ms p99=%.2f ms max=%.2f ms%n", percentile(sorted, 0.50) / 1e6,
+                    percentile(sorted, 0.99) / 1e6, sorted[sorted.length - 1] / 1e6);
+        }
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1)];
+    }
+
+    /**
+     * One simulated user's connection and progress.
+     */
+    private static final class Client {
+        private final int index;
+        private final SocketChannel channel;
+        private final int roomId;
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(Frames.maxFrameSize());
+        private final Deque<ByteBuffer> outbound = new ArrayDeque<>();
+        private SelectionKey key;
+        private State state = State.WAITING_TO_LOG_IN;
+        private long retryAt;
+        private int sent;
+        private long sentAt;
+
+        private Client(int index, SocketChannel channel, int roomId) {
+            this.index = index;
+            this.channel = channel;
+            this.roomId = roomId;
+        }
+    }
+}
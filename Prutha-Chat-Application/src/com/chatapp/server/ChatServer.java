@@ -0,0 +1,523 @@
+package com.chatapp.server;
+
+import com.chatapp.database.DatabaseManager;
+import com.chatapp.models.ChatRoom;
+import com.chatapp.models.Message;
+import com.chatapp.models.RegisterUser;
+import com.chatapp.services.ChatRoomManager;
+import com.chatapp.services.PresenceService;
+import com.chatapp.services.UserManager;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Network front end for the Chat Application, so users on different machines can chat in the same room.
+ * <p>
+ * Connections are accepted on a dedicated thread and served according to the {@link ServerMode}:
+ * <ul>
+ *     <li>{@link ServerMode#NIO} spreads them round-robin over a small number of {@link SelectorLoop}
+ *     I/O threads, each multiplexing many non-blocking channels. An idle client costs a selection key
+ *     and a small read buffer rather than a thread. Commands that touch the database run on a bounded
+ *     worker pool so they never block an I/O thread.</li>
+ *     <li>{@link ServerMode#VIRTUAL_THREADS} gives every connection its own virtual threads (a reader
+ *     and a writer) doing blocking reads and blocking JDBC, which scales to very many sessions on Java 21.</li>
+ *     <li>{@link ServerMode#PLATFORM_THREADS} does the same with platform threads, for comparison. Each
+ *     connection holds two of them, so the connection limit is also capped at half the thread budget.</li>
+ * </ul>
+ * </p>
+ * <p>
+ * At most {@code chatapp.server.maxConnections} clients (10,000 by default) are connected at once; further
+ * connections are closed as soon as they are accepted rather than left waiting for a thread. Logging out a
+ * disconnected client runs on its own small executor, which the session threads cannot use up.
+ * </p>
+ * <p>
+ * Clients speak either the framed text protocol defined by {@link Frames} or the binary protocol
+ * defined by {@link BinaryFrameCodec}; the server tells them apart by the first byte a client sends.
+ * The text commands are:
+ * <ul>
+ *     <li>{@code LOGIN <username> <password>} - authenticates the session</li>
+ *     <li>{@code JOIN <chatRoomId>} - joins (and leaves any previous) chat room</li>
+ *     <li>{@code SAY <message>} - sends a message to everyone in the current room</li>
+ *     <li>{@code LEAVE} - leaves the current room</li>
+ *     <li>{@code QUIT} - logs out and disconnects</li>
+ * </ul>
+ * The server answers with {@code OK ...} or {@code ERR ...} frames and pushes
+ * {@code MSG <chatRoomId> <epochMillis> <senderName> <encryptedMessage>} frames to room participants.
+ * Binary clients use the equivalent typed frames and receive {@code MESSAGE} frames instead.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+public class ChatServer {
+    public static final int DEFAULT_PORT = 5555;
+    private static final int MAX_CONNECTIONS = Integer.getInteger("chatapp.server.maxConnections", 10_000);
+
+    private final int port;
+    private final ServerMode mode;
+    private final DatabaseManager databaseManager = new DatabaseManager();
+    private final UserManager userManager = new UserManager(databaseManager);
+    private final ChatRoomManager chatRoomManager = new ChatRoomManager();
+    private final SelectorLoop[] loops;
+    private final ExecutorService workers; // NIO only
+    private final ThreadFactory sessionThreads; // Blocking modes only
+    private final ExecutorService cleanup = Executors.newFixedThreadPool(2,
+            ServerMode.platformThreadFactory("chat-cleanup-"));
+    private final int maxConnections;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final LongAdder rejectedConnections = new LongAdder();
+
+    private final Set<ClientSession> sessions = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, Set<ClientSession>> roomSessions = new ConcurrentHashMap<>();
+
+    private ServerSocketChannel serverChannel;
+    private volatile boolean running;
+
+    /**
+     * Creates a server; call {@link #start()} to begin accepting clients.
+     *
+     * @param port          The TCP port to listen on.
+     * @param mode          How connections are mapped onto threads. {@link ServerMode#VIRTUAL_THREADS}
+     *                      falls back to platform threads on JVMs older than 21.
+     * @param ioThreads     The number of selector threads ({@link ServerMode#NIO} only).
+     * @param workerThreads In {@link ServerMode#NIO}, the threads running database-backed commands; in
+     *                      {@link ServerMode#PLATFORM_THREADS}, the most connection threads to run
+     *                      (each connection uses two threads).
+     * @throws IOException if a selector cannot be opened.
+     */
+    public ChatServer(int port, ServerMode mode, int ioThreads, int workerThreads) throws IOException {
+        this(port, mode, ioThreads, workerThreads, MAX_CONNECTIONS);
+    }
+
+    /**
+     * Creates a server with an explicit connection limit; call {@link #start()} to begin accepting clients.
+     *
+     * @param port           The TCP port to listen on.
+     * @param mode           How connections are mapped onto threads.
+     * @param ioThreads      The number of selector threads ({@link ServerMode#NIO} only).
+     * @param workerThreads  See {@link #ChatServer(int, ServerMode, int, int)}.
+     * @param maxConnections The most clients connected at once; further connections are closed on accept.
+     * @throws IOException if a selector cannot be opened.
+     */
+    public ChatServer(int port, ServerMode mode, int ioThreads, int workerThreads, int maxConnections)
+            throws IOException {
+        this.port = port;
+        ThreadFactory virtualThreads = mode == ServerMode.VIRTUAL_THREADS ? ServerMode.virtualThreadFactory() : null;
+        if (mode == ServerMode.VIRTUAL_THREADS && virtualThreads == null) {
+            System.err.println("Virtual threads need Java 21 or later; using platform threads instead.");
+            mode = ServerMode.PLATFORM_THREADS;
+        }
+        this.mode = mode;
+
+        this.loops = new SelectorLoop[mode == ServerMode.NIO ? ioThreads : 0];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new SelectorLoop(this);
+        }
+        if (mode == ServerMode.NIO) {
+            this.workers = Executors.newFixedThreadPool(workerThreads, ServerMode.platformThreadFactory("chat-worker-"));
+            this.sessionThreads = null;
+            this.maxConnections = maxConnections;
+        } else {
+            this.workers = null;
+            if (virtualThreads != null) {
+                this.sessionThreads = virtualThreads;
+                this.maxConnections = maxConnections;
+            } else {
+                this.sessionThreads = ServerMode.platformThreadFactory("chat-session-");
+                this.maxConnections = Math.min(maxConnections, Math.max(1, workerThreads / 2));
+            }
+        }
+    }
+
+    /**
+     * Starts the I/O threads and the acceptor thread.
+     *
+     * @throws IOException if the port cannot be bound.
+     */
+    public void start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), 1024);
+        running = true;
+        for (int i = 0; i < loops.length; i++) {
+            new Thread(loops[i], "chat-io-" + i).start();
+        }
+        Thread acceptor = new Thread(this::acceptLoop, "chat-acceptor");
+        acceptor.start();
+        System.out.println("Chat server listening on port " + port + " in " + mode + " mode");
+    }
+
+    /**
+     * Stops accepting clients, disconnects everyone, stops the worker pool, closes the rooms' message logs and
+     * marks every user offline.
+     */
+    public void stop() {
+        running = false;
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        for (SelectorLoop loop : loops) {
+            loop.shutdown();
+        }
+        for (ClientSession session : sessions) {
+            closeSession(session);
+        }
+        if (workers != null) {
+            awaitShutdown(workers);
+        }
+        awaitShutdown(cleanup); // Runs the logouts queued by the sessions closed above.
+        databaseManager.flushMessages();
+        chatRoomManager.closeMessageLogs();
+        // Every session is gone, so clear all online flags in one statement instead of one per user.
+        databaseManager.markAllUsersOffline();
+    }
+
+    private static void awaitShutdown(ExecutorService pool) {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the mode this server runs in.
+     */
+    public ServerMode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return the number of currently connected clients.
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * @return the number of connections closed on accept because the server was at its connection limit.
+     */
+    public long getRejectedConnectionCount() {
+        return rejectedConnections.sum();
+    }
+
+    private void acceptLoop() {
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                if (connections.incrementAndGet() > maxConnections) {
+                    connections.decrementAndGet();
+                    rejectedConnections.increment();
+                    channel.close();
+                    continue;
+                }
+                if (mode == ServerMode.NIO) {
+                    loops[next].register(channel);
+                    next = (next + 1) % loops.length;
+                } else {
+                    startBlockingSession(channel);
+                }
+            } catch (IOException e) {
+                if (running) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void startBlockingSession(SocketChannel channel) {
+        BlockingClientSession session = new BlockingClientSession(this, channel);
+        sessionOpened(session);
+        try {
+            // The writer starts first, so replies to the first commands always have a thread to send them.
+            sessionThreads.newThread(session::writeLoop).start();
+            sessionThreads.newThread(session::readLoop).start();
+        } catch (OutOfMemoryError e) { // No native thread left for this connection.
+            e.printStackTrace();
+            closeSession(session);
+        }
+    }
+
+    void sessionOpened(ClientSession session) {
+        sessions.add(session);
+    }
+
+    /**
+     * Releases the connection slot of an accepted channel that never became a session.
+     */
+    void sessionFailed() {
+        connections.decrementAndGet();
+    }
+
+    /**
+     * Called on an I/O thread for every complete frame; hands the command to the worker pool.
+     */
+    void onCommand(NioClientSession session, Runnable command) {
+        session.execute(workers, command);
+    }
+
+    /**
+     * Turns a text frame into a command to run. Cheap enough to call on an I/O thread.
+     */
+    Runnable parseText(ClientSession session, String payload) {
+        String[] parts = payload.split(" ", 2);
+        String command = parts[0];
+        String argument = parts.length > 1 ? parts[1] : "";
+
+        switch (command) {
+            case "LOGIN":
+                String[] credentials = argument.split(" ", 2);
+                if (credentials.length < 2) {
+                    return () -> reply(session, false, "Usage: LOGIN <username> <password>");
+                }
+                return () -> login(session, credentials[0], credentials[1]);
+            case "JOIN":
+                try {
+                    int chatRoomId = Integer.parseInt(argument.trim());
+                    return () -> join(session, chatRoomId);
+                } catch (NumberFormatException e) {
+                    return () -> reply(session, false, "Usage: JOIN <chatRoomId>");
+                }
+            case "SAY":
+                return () -> say(session, argument);
+            case "LEAVE":
+                return () -> leave(session);
+            case "QUIT":
+                return () -> quit(session);
+            default:
+                return () -> reply(session, false, "Unknown command: " + command);
+        }
+    }
+
+    /**
+     * Turns a binary frame into a command to run. The frame's text slices point into the session's
+     * read buffer, so everything the command needs is copied out here, before the buffer is reused.
+     */
+    Runnable parseBinary(ClientSession session, BinaryFrame frame) {
+        switch (frame.getType()) {
+            case BinaryFrameCodec.TYPE_HELLO:
+                int version = frame.getVersion();
+                return () -> hello(session, version);
+            case BinaryFrameCodec.TYPE_LOGIN:
+                String username = frame.textAsString();
+                String password = frame.secondTextAsString();
+                return () -> login(session, username, password);
+            case BinaryFrameCodec.TYPE_JOIN:
+                int chatRoomId = frame.getChatRoomId();
+                return () -> join(session, chatRoomId);
+            case BinaryFrameCodec.TYPE_MESSAGE:
+                String message = frame.textAsString();
+                return () -> say(session, message);
+            case BinaryFrameCodec.TYPE_LEAVE:
+                return () -> leave(session);
+            case BinaryFrameCodec.TYPE_QUIT:
+                return () -> quit(session);
+            default:
+                return () -> reply(session, false, "Unexpected frame type: " + frame.getType());
+        }
+    }
+
+    private void hello(ClientSession session, int clientVersion) {
+        if (clientVersion < BinaryFrameCodec.MIN_VERSION) {
+            reply(session, false, "Protocol version " + clientVersion + " is no longer supported");
+            closeSession(session);
+            return;
+        }
+        int agreed = Math.min(clientVersion, BinaryFrameCodec.CURRENT_VERSION);
+        session.setBinaryVersion(agreed);
+        session.send(BinaryFrameCodec.encodeHello(agreed));
+    }
+
+    /**
+     * Starts a login and replies when the password check finishes on the password pool, so command threads
+     * never wait on hashing. The session's later commands are held until the reply is sent.
+     */
+    private void login(ClientSession session, String username, String password) {
+        CompletableFuture<?> done = userManager.loginAsync(username, password, session.remoteHost())
+                .whenComplete((user, error) -> {
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    if (cause instanceof IllegalStateException) {
+                        reply(session, false, cause.getMessage()); // Throttled or password pool full; may retry.
+                    } else if (cause != null) {
+                        cause.printStackTrace();
+                        reply(session, false, "Login failed");
+                    } else if (user == null) {
+                        reply(session, false, "Login failed");
+                    } else {
+                        session.setUser(user);
+                        reply(session, true, "LOGIN " + user.getUserId() + " " + user.getName());
+                    }
+                });
+        session.holdCommandsUntil(done);
+    }
+
+    private void join(ClientSession session, int chatRoomId) {
+        RegisterUser user = session.getUser();
+        if (user == null) {
+            reply(session, false, "Log in first");
+            return;
+        }
+        ChatRoom chatRoom = chatRoomManager.getChatRoomById(chatRoomId);
+        if (chatRoom == null) {
+            reply(session, false, "Chat room " + chatRoomId + " does not exist");
+            return;
+        }
+
+        leaveRoom(session);
+        chatRoom.addParticipant(user);
+        userManager.getPresence().enterRoom(user.getUserId(), chatRoomId);
+        databaseManager.insertUserToChatRoom(user.getUserId(), chatRoomId);
+        session.setChatRoom(chatRoom);
+        roomSessions.computeIfAbsent(chatRoomId, id -> ConcurrentHashMap.newKeySet()).add(session);
+        reply(session, true, "JOIN " + chatRoomId + " " + chatRoom.getRoomName());
+    }
+
+    private void say(ClientSession session, String message) {
+        RegisterUser user = session.getUser();
+        ChatRoom chatRoom = session.getChatRoom();
+        if (user == null || chatRoom == null) {
+            reply(session, false, "Log in and join a chat room first");
+            return;
+        }
+        if (message.isBlank()) {
+            return;
+        }
+        Message sent = chatRoomManager.postMessage(chatRoom, user, message);
+        broadcast(chatRoom.getChatRoomId(), user, sent.getTimestamp(), sent.getBody());
+    }
+
+    private void leave(ClientSession session) {
+        leaveRoom(session);
+        reply(session, true, "LEAVE");
+    }
+
+    private void quit(ClientSession session) {
+        reply(session, true, "QUIT");
+        closeSession(session);
+    }
+
+    /**
+     * Sends a message to every session in the room. Each protocol's frame is encoded at most once and
+     * the buffer is shared between recipients, not copied.
+     */
+    private void broadcast(int chatRoomId, RegisterUser sender, long epochMillis, String encryptedMessage) {
+        Set<ClientSession> recipients = roomSessions.get(chatRoomId);
+        if (recipients == null) {
+            return;
+        }
+        ByteBuffer textFrame = null;
+        ByteBuffer[] binaryFrames = new ByteBuffer[BinaryFrameCodec.CURRENT_VERSION + 1];
+        for (ClientSession recipient : recipients) {
+            if (recipient.isBinary()) {
+                int version = recipient.getBinaryVersion();
+                if (binaryFrames[version] == null) {
+                    binaryFrames[version] = BinaryFrameCodec.encodeMessage(version, chatRoomId,
+                            sender.getUserId(), epochMillis, encryptedMessage);
+                }
+                recipient.send(binaryFrames[version]);
+            } else {
+                if (textFrame == null) {
+                    textFrame = Frames.encode("MSG " + chatRoomId + " " + epochMillis + " "
+                            + sender.getName().replace(' ', '_') + " " + encryptedMessage);
+                }
+                recipient.send(textFrame);
+            }
+        }
+    }
+
+    private void leaveRoom(ClientSession session) {
+        ChatRoom chatRoom = session.getChatRoom();
+        if (chatRoom == null) {
+            return;
+        }
+        Set<ClientSession> members = roomSessions.get(chatRoom.getChatRoomId());
+        if (members != null) {
+            members.remove(session);
+        }
+        RegisterUser user = session.getUser();
+        if (user != null) {
+            PresenceService presence = userManager.getPresence();
+            presence.leaveRoom(user.getUserId(), chatRoom.getChatRoomId());
+            // Another session of the same user may still be in the room.
+            if (!presence.getOnlineUserIds(chatRoom.getChatRoomId()).contains(user.getUserId())) {
+                chatRoom.removeParticipant(user);
+            }
+        }
+        session.setChatRoom(null);
+    }
+
+    /**
+     * Sends an {@code OK} or {@code ERR} status in whichever protocol the session speaks.
+     */
+    private void reply(ClientSession session, boolean ok, String text) {
+        if (session.isBinary()) {
+            session.send(BinaryFrameCodec.encodeStatus(session.getBinaryVersion(), ok, text));
+        } else {
+            session.send(Frames.encode((ok ? "OK " : "ERR ") + text));
+        }
+    }
+
+    /**
+     * Disconnects a session and releases its room membership and login. Safe to call more than once
+     * and from any thread.
+     */
+    void closeSession(ClientSession session) {
+        if (session == null || !session.close()) {
+            return;
+        }
+        sessions.remove(session);
+        connections.decrementAndGet();
+        Runnable logout = () -> {
+            leaveRoom(session);
+            RegisterUser user = session.getUser();
+            if (user != null) {
+                userManager.logout(user);
+            }
+        };
+        try {
+            cleanup.execute(logout);
+        } catch (RejectedExecutionException e) {
+            logout.run(); // Server is stopping; clean up on this thread instead.
+        }
+    }
+
+    /**
+     * Starts a chat server. The port may be given as the first argument. The threading model is chosen
+     * with {@code -Dchatapp.server.mode=nio|virtual|platform} (default {@code nio}); thread counts can be
+     * set with the {@code chatapp.server.ioThreads} and {@code chatapp.server.workerThreads} properties, and
+     * the connection limit with {@code chatapp.server.maxConnections}.
+     *
+     * @param args Optional port number.
+     * @throws IOException if the server cannot start.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        ServerMode mode = ServerMode.fromName(System.getProperty("chatapp.server.mode", "nio"));
+        int ioThreads = Integer.getInteger("chatapp.server.ioThreads",
+                Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        int workerThreads = Integer.getInteger("chatapp.server.workerThreads",
+                mode == ServerMode.PLATFORM_THREADS ? 400 : 8);
+
+        ChatServer server = new ChatServer(port, mode, ioThreads, workerThreads);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+    }
+}
@@ -0,0 +1,144 @@
+package com.chatapp.server;
+
+import com.chatapp.models.ChatRoom;
+import com.chatapp.models.RegisterUser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The server-side state of one connected client: the user and chat room it is currently bound to,
+ * the wire protocol it speaks, plus a way to push frames to it. How bytes reach the socket depends on
+ * the {@link ServerMode}; see {@link NioClientSession} and {@link BlockingClientSession}.
+ * <p>
+ * The protocol is detected from the first byte the client sends: {@link BinaryFrameCodec#MAGIC} selects
+ * the binary protocol, anything else the text protocol of {@link Frames}.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+public abstract class ClientSession {
+    private static final int PROTOCOL_UNKNOWN = 0;
+    private static final int PROTOCOL_TEXT = 1;
+    private static final int PROTOCOL_BINARY = 2;
+
+    private volatile RegisterUser user;
+    private volatile ChatRoom chatRoom;
+    private volatile int protocol = PROTOCOL_UNKNOWN;
+    private volatile int binaryVersion = BinaryFrameCodec.CURRENT_VERSION;
+    // Reused for every decoded binary frame; only touched by the thread reading this session.
+    private final BinaryFrame frame = new BinaryFrame();
+    // Set by a command that finishes asynchronously; only touched by the thread running this session's commands.
+    private CompletableFuture<?> commandHold;
+
+    /**
+     * Makes the session's later commands wait until {@code completion} is done, so a command that finishes
+     * asynchronously (such as a login) still takes effect before the next one runs. Must be called from the
+     * command itself.
+     *
+     * @param completion The future that ends the command.
+     */
+    void holdCommandsUntil(CompletableFuture<?> completion) {
+        commandHold = completion;
+    }
+
+    /**
+     * Called after each command has run.
+     *
+     * @return the future the next command must wait for, or {@code null} if it can run straight away.
+     */
+    CompletableFuture<?> takeCommandHold() {
+        CompletableFuture<?> hold = commandHold;
+        commandHold = null;
+        return hold != null && !hold.isDone() ? hold : null;
+    }
+
+    /**
+     * Decodes the next complete frame from the session's read buffer into a command.
+     *
+     * @param server The server that interprets the frame.
+     * @param buffer The read buffer, in read mode.
+     * @return The command to run, or {@code null} if the buffer does not hold a complete frame.
+     * @throws IOException if the client sent a malformed frame.
+     */
+    Runnable nextCommand(ChatServer server, ByteBuffer buffer) throws IOException {
+        if (!buffer.hasRemaining()) {
+            return null;
+        }
+        if (protocol == PROTOCOL_UNKNOWN) {
+            protocol = buffer.get(buffer.position()) == BinaryFrameCodec.MAGIC ? PROTOCOL_BINARY : PROTOCOL_TEXT;
+        }
+        if (protocol == PROTOCOL_BINARY) {
+            return BinaryFrameCodec.decode(buffer, frame) ? server.parseBinary(this, frame) : null;
+        }
+        String payload = Frames.decode(buffer);
+        return payload == null ? null : server.parseText(this, payload);
+    }
+
+    /**
+     * @return {@code true} if the client speaks the binary protocol.
+     */
+    public boolean isBinary() {
+        return protocol == PROTOCOL_BINARY;
+    }
+
+    /**
+     * @return the binary protocol version agreed with the client.
+     */
+    public int getBinaryVersion() {
+        return binaryVersion;
+    }
+
+    void setBinaryVersion(int binaryVersion) {
+        this.binaryVersion = binaryVersion;
+    }
+
+    /**
+     * @return the authenticated user, or {@code null} before a successful login.
+     */
+    public RegisterUser getUser() {
+        return user;
+    }
+
+    void setUser(RegisterUser user) {
+        this.user = user;
+    }
+
+    /**
+     * @return the chat room this session has joined, or {@code null} if none.
+     */
+    public ChatRoom getChatRoom() {
+        return chatRoom;
+    }
+
+    void setChatRoom(ChatRoom chatRoom) {
+        this.chatRoom = chatRoom;
+    }
+
+    /**
+     * Queues a frame for this client. The buffer is not modified, so one encoded frame can be shared
+     * between every recipient of a broadcast. May be called from any thread.
+     *
+     * @param frame An encoded frame in read mode.
+     */
+    public abstract void send(ByteBuffer frame);
+
+    /**
+     * Closes the connection.
+     *
+     * @return {@code true} the first time the session is closed, {@code false} afterwards.
+     */
+    abstract boolean close();
+
+    /**
+     * @return a short description of the remote peer, for log messages.
+     */
+    abstract String describe();
+
+    /**
+     * @return the remote peer's IP address without its port, for per-client limits, or {@code null} if
+     * the connection is closed.
+     */
+    abstract String remoteHost();
+}
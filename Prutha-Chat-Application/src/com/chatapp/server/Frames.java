@@ -0,0 +1,101 @@
+package com.chatapp.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Length-prefixed framing used between {@link ChatServer} and its clients.
+ * <p>
+ * Every frame is a 4-byte big-endian payload length followed by that many bytes of UTF-8 text.
+ * Frames larger than {@link #MAX_FRAME_BYTES} are rejected so a misbehaving client cannot make the
+ * server allocate unbounded buffers.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+public final class Frames {
+    /** Largest payload accepted in a single frame. */
+    public static final int MAX_FRAME_BYTES = 64 * 1024;
+    private static final int HEADER_BYTES = Integer.BYTES;
+    // Small initial read buffer so idle connections stay cheap; it grows only for frames that need it.
+    static final int INITIAL_READ_BUFFER_BYTES = 512;
+
+    private Frames() {
+    }
+
+    /**
+     * Encodes a payload into a frame ready to be written.
+     *
+     * @param payload The frame text.
+     * @return A buffer in read mode containing the length header and payload.
+     */
+    public static ByteBuffer encode(String payload) {
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_FRAME_BYTES) {
+            throw new IllegalArgumentException("Frame too large: " + bytes.length + " bytes");
+        }
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + bytes.length);
+        frame.putInt(bytes.length).put(bytes).flip();
+        return frame;
+    }
+
+    /**
+     * Removes the next complete frame from the buffer, if there is one.
+     *
+     * @param buffer A buffer in read mode. Its position is advanced past the frame only when a whole
+     *               frame is available.
+     * @return The frame payload, or {@code null} if the buffer does not yet hold a whole frame.
+     * @throws IOException if the frame header announces a payload larger than {@link #MAX_FRAME_BYTES}.
+     */
+    public static String decode(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_BYTES) {
+            return null;
+        }
+        int length = buffer.getInt(buffer.position());
+        if (length < 0 || length > MAX_FRAME_BYTES) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+        if (buffer.remaining() < HEADER_BYTES + length) {
+            return null;
+        }
+        buffer.position(buffer.position() + HEADER_BYTES);
+        String payload = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return payload;
+    }
+
+    /**
+     * Size of the read buffer needed to hold the largest frame of either protocol. A binary frame's header
+     * can be longer than a text frame's, so a buffer sized for text frames alone could fill up with a legal
+     * binary frame still incomplete and never read again.
+     *
+     * @return The buffer capacity in bytes.
+     */
+    static int maxFrameSize() {
+        return Math.max(HEADER_BYTES, BinaryFrameCodec.MAX_HEADER_BYTES) + MAX_FRAME_BYTES;
+    }
+
+    /**
+     * Compacts a read buffer after its complete frames have been decoded, doubling it when a partial
+     * frame fills it and shrinking it back to {@code initialCapacity} once it is empty. This keeps idle
+     * connections cheap while still accepting frames up to {@link #MAX_FRAME_BYTES}.
+     *
+     * @param buffer          A buffer in read mode.
+     * @param initialCapacity The capacity to return to when the buffer is empty.
+     * @return The buffer to read into next, in write mode; possibly a new one.
+     */
+    static ByteBuffer compactReadBuffer(ByteBuffer buffer, int initialCapacity) {
+        buffer.compact();
+        if (!buffer.hasRemaining()) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.min(buffer.capacity() * 2, maxFrameSize()));
+            buffer.flip();
+            larger.put(buffer);
+            return larger;
+        }
+        if (buffer.position() == 0 && buffer.capacity() > initialCapacity) {
+            return ByteBuffer.allocate(initialCapacity);
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,175 @@
+package com.chatapp.server;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A client connection served by a {@link SelectorLoop}: its non-blocking channel, partially read input
+ * and queued output.
+ * <p>
+ * Reads happen on the owning {@link SelectorLoop} thread. Any thread may call {@link #send(ByteBuffer)};
+ * the frame is queued and the loop is asked to flush it when the socket is writable. Commands from the
+ * client run one at a time, in arrival order, on the server's worker pool so blocking database calls
+ * never stall the I/O thread.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+class NioClientSession extends ClientSession {
+    // A client that falls this far behind is disconnected instead of buffering forever.
+    private static final long MAX_OUTBOUND_BYTES = 1024 * 1024;
+
+    private final ChatServer server;
+    private final SelectorLoop loop;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private ByteBuffer readBuffer = ByteBuffer.allocate(Frames.INITIAL_READ_BUFFER_BYTES);
+
+    private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+    private final AtomicLong outboundBytes = new AtomicLong();
+    private final AtomicBoolean writeRequested = new AtomicBoolean();
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean taskRunning = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    NioClientSession(ChatServer server, SelectorLoop loop, SocketChannel channel, SelectionKey key) {
+        this.server = server;
+        this.loop = loop;
+        this.channel = channel;
+        this.key = key;
+    }
+
+    SelectionKey getKey() {
+        return key;
+    }
+
+    @Override
+    public void send(ByteBuffer frame) {
+        if (closed.get()) {
+            return;
+        }
+        ByteBuffer copy = frame.duplicate();
+        if (outboundBytes.addAndGet(copy.remaining()) > MAX_OUTBOUND_BYTES) {
+            System.err.println("Disconnecting slow client " + describe());
+            server.closeSession(this);
+            return;
+        }
+        outbound.add(copy);
+        if (writeRequested.compareAndSet(false, true)) {
+            loop.requestWrite(this);
+        }
+    }
+
+    /**
+     * Reads whatever is available and dispatches every complete frame. Runs on the loop thread.
+     */
+    void onReadable() throws IOException {
+        if (channel.read(readBuffer) < 0) {
+            throw new EOFException();
+        }
+        readBuffer.flip();
+        Runnable command;
+        while ((command = nextCommand(server, readBuffer)) != null) {
+            server.onCommand(this, command);
+        }
+        readBuffer = Frames.compactReadBuffer(readBuffer, Frames.INITIAL_READ_BUFFER_BYTES);
+    }
+
+    /**
+     * Writes queued frames until the socket would block. Runs on the loop thread.
+     */
+    void onWritable() throws IOException {
+        ByteBuffer head;
+        while ((head = outbound.peek()) != null) {
+            int written = channel.write(head);
+            outboundBytes.addAndGet(-written);
+            if (head.hasRemaining()) {
+                return; // Socket buffer is full; wait for the next writable event.
+            }
+            outbound.poll();
+        }
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        writeRequested.set(false);
+        if (!outbound.isEmpty() && writeRequested.compareAndSet(false, true)) {
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        }
+    }
+
+    /**
+     * Runs a command for this session on the given executor, after any command still in progress.
+     */
+    void execute(Executor executor, Runnable task) {
+        tasks.add(task);
+        if (taskRunning.compareAndSet(false, true)) {
+            executor.execute(() -> drainTasks(executor));
+        }
+    }
+
+    private void drainTasks(Executor executor) {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+            CompletableFuture<?> hold = takeCommandHold();
+            if (hold != null) {
+                // The command is still finishing; resume the queue afterwards without keeping a worker busy.
+                hold.whenComplete((result, error) -> executor.execute(() -> drainTasks(executor)));
+                return;
+            }
+        }
+        taskRunning.set(false);
+        if (!tasks.isEmpty() && taskRunning.compareAndSet(false, true)) {
+            executor.execute(() -> drainTasks(executor));
+        }
+    }
+
+    @Override
+    boolean close() {
+        if (!closed.compareAndSet(false, true)) {
+            return false;
+        }
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        outbound.clear();
+        return true;
+    }
+
+    @Override
+    String describe() {
+        try {
+            return String.valueOf(channel.getRemoteAddress());
+        } catch (IOException e) {
+            return "<closed>";
+        }
+    }
+
+    @Override
+    String remoteHost() {
+        try {
+            SocketAddress address = channel.getRemoteAddress();
+            return address instanceof InetSocketAddress
+                    ? ((InetSocketAddress) address).getAddress().getHostAddress() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
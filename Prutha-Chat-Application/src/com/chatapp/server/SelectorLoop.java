@@ -0,0 +1,122 @@
+package com.chatapp.server;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A single I/O thread multiplexing many client connections over one {@link Selector}.
+ * <p>
+ * Other threads never touch the selector directly; they hand new channels and write requests to
+ * the loop through queues and wake it up, so all interest-set changes happen on the loop's own thread.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+class SelectorLoop implements Runnable {
+    private final ChatServer server;
+    private final Selector selector;
+    private final Queue<SocketChannel> pendingRegistrations = new ConcurrentLinkedQueue<>();
+    private final Queue<NioClientSession> pendingWrites = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+
+    SelectorLoop(ChatServer server) throws IOException {
+        this.server = server;
+        this.selector = Selector.open();
+    }
+
+    /**
+     * Hands a freshly accepted channel to this loop.
+     */
+    void register(SocketChannel channel) {
+        pendingRegistrations.add(channel);
+        selector.wakeup();
+    }
+
+    /**
+     * Asks the loop to start watching the session for writability because it has queued output.
+     */
+    void requestWrite(NioClientSession session) {
+        pendingWrites.add(session);
+        selector.wakeup();
+    }
+
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                registerPending();
+                enableWrites();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    NioClientSession session = (NioClientSession) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            session.onReadable();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            session.onWritable();
+                        }
+                    } catch (IOException | CancelledKeyException e) {
+                        server.closeSession(session);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                server.closeSession((NioClientSession) key.attachment());
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void registerPending() {
+        SocketChannel channel;
+        while ((channel = pendingRegistrations.poll()) != null) {
+            try {
+                channel.configureBlocking(false);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                NioClientSession session = new NioClientSession(server, this, channel, key);
+                key.attach(session);
+                server.sessionOpened(session);
+            } catch (IOException e) {
+                server.sessionFailed();
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Nothing more to do for a channel that failed to register.
+                }
+            }
+        }
+    }
+
+    private void enableWrites() {
+        NioClientSession session;
+        while ((session = pendingWrites.poll()) != null) {
+            SelectionKey key = session.getKey();
+            if (key.isValid()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            }
+        }
+    }
+}
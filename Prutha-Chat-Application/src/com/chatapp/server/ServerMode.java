@@ -0,0 +1,71 @@
+package com.chatapp.server;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * How {@link ChatServer} maps client connections onto threads. Selected at startup with the
+ * {@code chatapp.server.mode} system property ({@code nio}, {@code virtual} or {@code platform}).
+ *
+ * @author Prutha Upadhyay
+ */
+public enum ServerMode {
+    /** A few selector threads multiplex every connection; commands run on a worker pool. */
+    NIO,
+    /** Virtual threads per connection doing plain blocking I/O and JDBC (Java 21 or later). */
+    VIRTUAL_THREADS,
+    /** Dedicated platform threads per connection, with the connection count capped to bound them. */
+    PLATFORM_THREADS;
+
+    /**
+     * Parses a mode name as used on the command line.
+     *
+     * @param name {@code nio}, {@code virtual} or {@code platform} (case-insensitive).
+     * @return The matching mode.
+     * @throws IllegalArgumentException if the name is not recognised.
+     */
+    public static ServerMode fromName(String name) {
+        switch (name.trim().toLowerCase()) {
+            case "nio":
+                return NIO;
+            case "virtual":
+                return VIRTUAL_THREADS;
+            case "platform":
+                return PLATFORM_THREADS;
+            default:
+                throw new IllegalArgumentException("Unknown server mode: " + name);
+        }
+    }
+
+    /**
+     * Returns a factory for virtual threads, or {@code null} when the running JVM does not have them.
+     * Looked up reflectively so the project still compiles at its Java 17 language level.
+     *
+     * @return A virtual thread factory, or {@code null} before Java 21.
+     */
+    static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "chat-vt-", 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns a factory for named platform threads.
+     *
+     * @param prefix The thread name prefix.
+     * @return A platform thread factory.
+     */
+    static ThreadFactory platformThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
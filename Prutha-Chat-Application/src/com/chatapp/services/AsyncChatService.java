@@ -0,0 +1,180 @@
+package com.chatapp.services;
+
+import com.chatapp.models.ChatRoom;
+import com.chatapp.models.Message;
+import com.chatapp.models.MessagePage;
+import com.chatapp.models.RegisterUser;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the blocking user and chat room operations on a dedicated executor, so callers on a UI thread
+ * never wait for the database.
+ * <p>
+ * Every method returns a {@link CompletableFuture} straight away. Validation failures complete it
+ * exceptionally with an {@link IllegalArgumentException} or {@link IllegalStateException} whose message
+ * can be shown to the user as is. Callers switch back to their own thread themselves, for example with
+ * {@code whenCompleteAsync(handler, Platform::runLater)} in JavaFX.
+ * </p>
+ * <p>
+ * The executor has {@code chatapp.async.threads} daemon threads, one by default, so operations run in
+ * the order they were submitted: a message sent right after logging in always sees the login.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+public class AsyncChatService {
+    private static final int THREADS = Integer.getInteger("chatapp.async.threads", 1);
+
+    private final UserManager userManager;
+    private final ChatRoomManager chatRoomManager;
+    private final ExecutorService executor;
+
+    /**
+     * @param userManager     The user manager the operations are delegated to.
+     * @param chatRoomManager The chat room manager the operations are delegated to.
+     */
+    public AsyncChatService(UserManager userManager, ChatRoomManager chatRoomManager) {
+        this.userManager = userManager;
+        this.chatRoomManager = chatRoomManager;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "chat-db-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Logs a user in.
+     *
+     * @return The logged-in user, or {@code null} if the credentials are wrong.
+     */
+    public CompletableFuture<RegisterUser> login(String username, String password) {
+        return submit(() -> userManager.login(username, password));
+    }
+
+    /**
+     * Registers a new user, who becomes the current user.
+     */
+    public CompletableFuture<Void> registerUser(String name, String userName, String password) {
+        return submit(() -> {
+            userManager.registerUser(name, userName, password);
+            return null;
+        });
+    }
+
+    /**
+     * Lists every chat room, loading them from the database the first time.
+     */
+    public CompletableFuture<List<ChatRoom>> getChatRooms() {
+        return submit(chatRoomManager::getChatRooms);
+    }
+
+    /**
+     * Creates a chat room with the user as its first participant and makes it the current room.
+     *
+     * @return The new chat room, or {@code null} if it could not be created.
+     */
+    public CompletableFuture<ChatRoom> createChatRoom(String roomName, RegisterUser creator) {
+        return submit(() -> {
+            ChatRoom chatRoom = chatRoomManager.createChatRoom(roomName, creator);
+            if (chatRoom != null) {
+                chatRoomManager.setCurrentChatRoom(chatRoom);
+            }
+            return chatRoom;
+        });
+    }
+
+    /**
+     * Adds the user to the chat room with the given name and makes it the current room.
+     *
+     * @return The joined chat room, or {@code null} if no room has that name.
+     */
+    public CompletableFuture<ChatRoom> joinChatRoom(String roomName, RegisterUser user) {
+        return submit(() -> {
+            ChatRoom chatRoom = chatRoomManager.getChatRoomByName(roomName);
+            if (chatRoom != null) {
+                chatRoomManager.addParticipantToChatRoom(user, chatRoom);
+            }
+            return chatRoom;
+        });
+    }
+
+    /**
+     * Sends a message from one logged-in user to another in the current chat room, storing the sent
+     * copy and the receiver's decrypted copy in the room's history.
+     *
+     * @return The sent message. Fails with an {@link IllegalArgumentException} if either username is unknown,
+     * or an {@link IllegalStateException} if a user is offline or no chat room is selected.
+     */
+    public CompletableFuture<Message> sendMessage(String senderUsername, String receiverUsername, String content) {
+        return submit(() -> {
+            RegisterUser sender = userManager.getUserByUsername(senderUsername);
+            RegisterUser receiver = userManager.getUserByUsername(receiverUsername);
+            if (sender == null || receiver == null) {
+                throw new IllegalArgumentException("Invalid sender or receiver username.");
+            }
+            if (!userManager.isLoggedIn(senderUsername) || !userManager.isLoggedIn(receiverUsername)) {
+                throw new IllegalStateException("One or both users are not logged in.");
+            }
+            ChatRoom chatRoom = chatRoomManager.getCurrentChatRoom();
+            if (chatRoom == null) {
+                throw new IllegalStateException("No chat room selected. Please create or join a chat room first.");
+            }
+
+            Message sent = chatRoomManager.postMessage(chatRoom, sender, content);
+            chatRoom.receiveMessage(receiver, sent.getBody());
+            return sent;
+        });
+    }
+
+    /**
+     * Loads the newest page of a chat room's stored history.
+     */
+    public CompletableFuture<MessagePage> getLatestMessages(ChatRoom chatRoom, int limit) {
+        return submit(() -> chatRoomManager.getLatestMessages(chatRoom, limit));
+    }
+
+    /**
+     * Loads the page of stored messages before a message ID cursor.
+     */
+    public CompletableFuture<MessagePage> getMessagesBefore(ChatRoom chatRoom, long beforeMessageId, int limit) {
+        return submit(() -> chatRoomManager.getMessagesBefore(chatRoom, beforeMessageId, limit));
+    }
+
+    /**
+     * Waits for queued messages to be written, so the copies held in memory carry their message IDs.
+     */
+    public CompletableFuture<Void> flushMessages() {
+        return submit(() -> {
+            chatRoomManager.flushMessages();
+            return null;
+        });
+    }
+
+    /**
+     * Runs any other blocking operation on the service's executor.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> operation) {
+        return CompletableFuture.supplyAsync(operation, executor);
+    }
+
+    /**
+     * Stops accepting work and waits briefly for running operations to finish.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -2,10 +2,20 @@ package com.chatapp.services;
 
 import com.chatapp.database.DatabaseManager;
 import com.chatapp.models.ChatRoom;
+import com.chatapp.models.Message;
+import com.chatapp.models.MessagePage;
 import com.chatapp.models.RegisterUser;
+import com.chatapp.models.User;
+import com.chatapp.storage.MessageLog;
 
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -17,10 +27,25 @@ import java.util.concurrent.atomic.AtomicInteger;
  * rooms and user-chat room relationships. It also provides an atomic counter to produce
  * unique identifiers for chat rooms, ensuring thread safety.</p>
  *
+ * <p>Chat rooms are kept in a registry indexed by ID and by name. The registry is loaded from the
+ * database once, on first use, and rooms created through {@link #createChatRoom(String, RegisterUser)}
+ * are added to it, so looking up or joining a known room never queries the database. Each room has
+ * exactly one {@code ChatRoom} instance, shared by everyone who looks it up.</p>
+ *
+ * <p>When the {@code chatapp.log.dir} system property names a directory, each room gets a {@link MessageLog}
+ * in its own {@code room-<id>} subdirectory, which reloads the room's recent history and records every new
+ * message. The log is opened by the room the first time its history is used, not when the room is
+ * registered, so loading the registry does no file I/O. {@link #closeMessageLogs()} forces and closes the
+ * opened logs on shutdown.</p>
+ *
  * @author Prutha Upadhyay
  */
 public class ChatRoomManager {
-    private final List<ChatRoom> chatRooms = new ArrayList<>();
+    private static final String MESSAGE_LOG_DIR = System.getProperty("chatapp.log.dir");
+
+    private final Map<Integer, ChatRoom> chatRoomsById = new ConcurrentHashMap<>();
+    private final Map<String, ChatRoom> chatRoomsByName = new ConcurrentHashMap<>();
+    private volatile boolean chatRoomsLoaded;
     private final DatabaseManager dbManager = new DatabaseManager();
     private final AtomicInteger chatRoomIdCounter = new AtomicInteger(0);
     private ChatRoom currentChatRoom;
@@ -44,12 +69,140 @@ public class ChatRoomManager {
     }
 
     /**
-     * Retrieves a list of all chat rooms in the system.
+     * Retrieves a list of all chat rooms in the system, ordered by ID.
      *
-     * @return A list of all chat rooms.
+     * @return An unmodifiable snapshot of all chat rooms.
      */
     public List<ChatRoom> getChatRooms() {
-        return chatRooms;
+        loadChatRooms();
+        List<ChatRoom> rooms = new ArrayList<>(chatRoomsById.values());
+        rooms.sort(Comparator.comparingInt(ChatRoom::getChatRoomId));
+        return Collections.unmodifiableList(rooms);
+    }
+
+    /**
+     * Looks up a chat room by its ID. Rooms already in the registry are returned without a database query;
+     * an unknown ID is looked up once in the database in case another process created the room.
+     *
+     * @param chatRoomId The ID of the chat room.
+     * @return The chat room, or {@code null} if it does not exist.
+     */
+    public ChatRoom getChatRoomById(int chatRoomId) {
+        loadChatRooms();
+        ChatRoom chatRoom = chatRoomsById.get(chatRoomId);
+        if (chatRoom == null) {
+            chatRoom = dbManager.getChatRoomById(chatRoomId);
+            if (chatRoom != null) {
+                chatRoom = register(chatRoom);
+            }
+        }
+        return chatRoom;
+    }
+
+    /**
+     * Looks up a chat room by its name, falling back to the database only for names not in the registry.
+     *
+     * @param roomName The name of the chat room.
+     * @return The chat room, or {@code null} if it does not exist.
+     */
+    public ChatRoom getChatRoomByName(String roomName) {
+        if (roomName == null) {
+            return null;
+        }
+        loadChatRooms();
+        ChatRoom chatRoom = chatRoomsByName.get(roomName);
+        if (chatRoom == null) {
+            chatRoom = dbManager.getChatRoomByName(roomName);
+            if (chatRoom != null) {
+                chatRoom = register(chatRoom);
+            }
+        }
+        return chatRoom;
+    }
+
+    /**
+     * Creates a chat room in the database, adds it to the registry and makes the creator its first participant.
+     *
+     * @param roomName The name of the new chat room.
+     * @param creator  The user creating the chat room.
+     * @return The new chat room, or {@code null} if it could not be created.
+     * @throws IllegalArgumentException if the name is blank or the creator is null.
+     */
+    public ChatRoom createChatRoom(String roomName, RegisterUser creator) {
+        if (roomName == null || roomName.trim().isEmpty() || creator == null) {
+            throw new IllegalArgumentException("Room name or creator cannot be null/empty.");
+        }
+
+        ChatRoom draft = new ChatRoom(generateChatRoomId());
+        draft.setRoomName(roomName);
+        int chatRoomId = dbManager.createChatRoom(draft, creator.getUserId());
+        if (chatRoomId == -1) {
+            return null;
+        }
+
+        ChatRoom chatRoom = new ChatRoom(chatRoomId);
+        chatRoom.setRoomName(roomName);
+        chatRoom = register(chatRoom);
+        chatRoom.addParticipant(creator);
+        return chatRoom;
+    }
+
+    /**
+     * Loads every chat room from the database into the registry the first time it is needed.
+     */
+    private void loadChatRooms() {
+        if (chatRoomsLoaded) {
+            return;
+        }
+        synchronized (this) {
+            if (!chatRoomsLoaded) {
+                for (ChatRoom chatRoom : dbManager.fetchChatRooms()) {
+                    register(chatRoom);
+                }
+                chatRoomsLoaded = true;
+            }
+        }
+    }
+
+    /**
+     * Adds a chat room to both indexes, with its message log pending, unless a room with the same ID is
+     * already registered.
+     *
+     * @return The registered instance, which callers must use instead of the argument.
+     */
+    private ChatRoom register(ChatRoom chatRoom) {
+        // Set before the room is published, so no one can use it without its log. Nothing is opened yet,
+        // so a candidate that loses the race below has nothing to clean up.
+        setMessageLogOpener(chatRoom);
+        ChatRoom registered = chatRoomsById.putIfAbsent(chatRoom.getChatRoomId(), chatRoom);
+        if (registered != null) {
+            return registered;
+        }
+        if (chatRoom.getRoomName() != null) {
+            chatRoomsByName.putIfAbsent(chatRoom.getRoomName(), chatRoom);
+        }
+        return chatRoom;
+    }
+
+    /**
+     * Tells the room where its message log is, if message logging is configured; the room opens it on first use.
+     */
+    private void setMessageLogOpener(ChatRoom chatRoom) {
+        if (MESSAGE_LOG_DIR == null) {
+            return;
+        }
+        int chatRoomId = chatRoom.getChatRoomId();
+        chatRoom.setMessageLogOpener(() -> MessageLog.open(Paths.get(MESSAGE_LOG_DIR, "room-" + chatRoomId),
+                chatRoomId));
+    }
+
+    /**
+     * Forces every opened room message log to disk and closes it. Called once on shutdown.
+     */
+    public void closeMessageLogs() {
+        for (ChatRoom chatRoom : chatRoomsById.values()) {
+            chatRoom.closeMessageLog();
+        }
     }
 
     /**
@@ -75,11 +228,35 @@ public class ChatRoomManager {
             throw new IllegalArgumentException("User or ChatRoom cannot be null.");
         }
 
+        chatRoom = register(chatRoom);
         chatRoom.addParticipant(user);
-        chatRooms.add(chatRoom);
+        dbManager.insertUserToChatRoom(user.getUserId(), chatRoom.getChatRoomId());
         setCurrentChatRoom(chatRoom);
     }
 
+    /**
+     * Adds several registered users to a chat room, persisting all of the memberships with batched
+     * statements instead of one round trip per user. Users who are already members are unaffected.
+     *
+     * @param users    The registered users to add.
+     * @param chatRoom The target chat room.
+     * @return {@code true} if every membership was stored in the database.
+     * @throws IllegalArgumentException if either the users or chat room is null.
+     */
+    public boolean addParticipantsToChatRoom(Collection<? extends RegisterUser> users, ChatRoom chatRoom) {
+        if (chatRoom == null || users == null) {
+            throw new IllegalArgumentException("Users or ChatRoom cannot be null.");
+        }
+
+        chatRoom = register(chatRoom);
+        List<Integer> userIds = new ArrayList<>(users.size());
+        for (RegisterUser user : users) {
+            chatRoom.addParticipant(user);
+            userIds.add(user.getUserId());
+        }
+        return dbManager.insertUsersToChatRoom(userIds, chatRoom.getChatRoomId());
+    }
+
     /**
      * Excludes a registered user from a specific chat room. This operation will
      * also update the database, removing the user-chat room association.
@@ -94,24 +271,94 @@ public class ChatRoomManager {
         }
 
         chatRoom.removeParticipant(user);
-        chatRooms.add(chatRoom);
         // This logic might be flawed; when a user leaves a room it doesn't mean the room is not current for others.
         setCurrentChatRoom(null);
     }
 
+    /**
+     * Sends a message in the given chat room and queues it to be persisted in the database.
+     * The database write happens in the background, so this returns as soon as the message is queued.
+     *
+     * @param chatRoom   The chat room the message is sent in.
+     * @param senderUser The user sending the message.
+     * @param message    The plaintext message content.
+     * @return The encrypted version of the sent message.
+     * @throws IllegalArgumentException if the chat room or sender is null.
+     */
+    public String sendMessage(ChatRoom chatRoom, User senderUser, String message) {
+        return postMessage(chatRoom, senderUser, message).getBody();
+    }
+
+    /**
+     * Sends a message like {@link #sendMessage(ChatRoom, User, String)} but returns the stored message.
+     *
+     * @param chatRoom   The chat room the message is sent in.
+     * @param senderUser The user sending the message.
+     * @param message    The plaintext message content.
+     * @return The stored message, whose body is the encrypted text.
+     * @throws IllegalArgumentException if the chat room or sender is null.
+     */
+    public Message postMessage(ChatRoom chatRoom, User senderUser, String message) {
+        if (chatRoom == null || senderUser == null) {
+            throw new IllegalArgumentException("User or ChatRoom cannot be null.");
+        }
+
+        Message sent = chatRoom.postMessage(senderUser, message);
+        dbManager.saveMessage(sent);
+        return sent;
+    }
+
+    /**
+     * Loads the newest page of a chat room's stored history, for example when the room is opened.
+     * Use {@link #getMessagesBefore(ChatRoom, long, int)} with the page's cursor to load older pages.
+     *
+     * @param chatRoom The chat room whose history is paged.
+     * @param limit    The maximum number of messages on the page.
+     * @return The newest page of messages, oldest first.
+     * @throws IllegalArgumentException if the chat room is null or the limit is not positive.
+     */
+    public MessagePage getLatestMessages(ChatRoom chatRoom, int limit) {
+        return getMessagesBefore(chatRoom, MessagePage.LATEST, limit);
+    }
+
+    /**
+     * Loads the page of a chat room's stored messages just before a given message, keyed on message ID
+     * rather than an offset so each page costs the same however far back it is.
+     *
+     * @param chatRoom        The chat room whose history is paged.
+     * @param beforeMessageId The cursor from {@link MessagePage#getNextCursor()}; only older messages are returned.
+     * @param limit           The maximum number of messages on the page.
+     * @return The page of messages, oldest first.
+     * @throws IllegalArgumentException if the chat room is null or the limit is not positive.
+     */
+    public MessagePage getMessagesBefore(ChatRoom chatRoom, long beforeMessageId, int limit) {
+        if (chatRoom == null || limit <= 0) {
+            throw new IllegalArgumentException("ChatRoom cannot be null and limit must be positive.");
+        }
+
+        return dbManager.fetchMessagePage(chatRoom.getChatRoomId(), beforeMessageId, limit);
+    }
+
+    /**
+     * Blocks until every message queued for the database so far has been written and given its ID.
+     */
+    public void flushMessages() {
+        dbManager.flushMessages();
+    }
+
     /**
      * Captures and stores a chat message within a designated chat room. This ensures
      * that each message sent within the room is kept in its historical context.
      *
      * @param chatRoom The chat room where the message originates and will be stored.
-     * @param message  The chat message content.
+     * @param message  The chat message.
      * @throws IllegalArgumentException if the chat room is null or if the message is null/empty.
      */
-    public void storeChatMessage(ChatRoom chatRoom, String message) {
-        if (chatRoom == null || message == null || message.trim().isEmpty()) {
+    public void storeChatMessage(ChatRoom chatRoom, Message message) {
+        if (chatRoom == null || message == null || message.getBody() == null || message.getBody().trim().isEmpty()) {
             throw new IllegalArgumentException("ChatRoom or message cannot be null/empty.");
         }
 
-        chatRoom.getChatHistory().add(message);
+        chatRoom.addMessage(message);
     }
 }
@@ -0,0 +1,186 @@
+package com.chatapp.services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory token buckets that throttle login attempts per username and per client address, checked
+ * before a login does any database or password work.
+ * <p>
+ * Every attempt takes one token from the username's bucket and one from the address's bucket; a bucket
+ * holds up to {@code burst} tokens and regains one every {@code 60 / perMinute} seconds. A user who
+ * mistypes a few times is never slowed down, but repeated failures drain the bucket, after which attempts
+ * are only let through at the refill rate. A successful login refills its username's bucket, so only
+ * failures count against a user. The limits come from these system properties:
+ * <ul>
+ *     <li>{@code chatapp.login.userBurst} and {@code chatapp.login.userPerMinute}, 5 and 5 by default, and</li>
+ *     <li>{@code chatapp.login.addressBurst} and {@code chatapp.login.addressPerMinute}, 20 and 60 by default,
+ *     higher because many users can share one address.</li>
+ * </ul>
+ * </p>
+ * <p>
+ * Each bucket is a single {@link AtomicLong} holding the time at which it will be full again, updated with
+ * compare-and-set, so checking a limit never takes a lock. A full bucket carries no information, so full
+ * buckets are swept out every {@value #SWEEP_INTERVAL} attempts. Since a bucket is full again at most
+ * {@code burst} intervals after its last attempt, memory follows the number of keys tried in that window
+ * rather than every key ever seen; and since the address is checked first, one address cannot fill the
+ * username table faster than its own limit allows.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+public class LoginRateLimiter {
+    private static final int SWEEP_INTERVAL = 1024;
+
+    private final Limit userLimit;
+    private final Limit addressLimit;
+    private final AtomicInteger attemptsSinceSweep = new AtomicInteger();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejectedByUser = new LongAdder();
+    private final LongAdder rejectedByAddress = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public LoginRateLimiter() {
+        this(Integer.getInteger("chatapp.login.userBurst", 5), Integer.getInteger("chatapp.login.userPerMinute", 5),
+                Integer.getInteger("chatapp.login.addressBurst", 20),
+                Integer.getInteger("chatapp.login.addressPerMinute", 60));
+    }
+
+    /**
+     * @param userBurst        The attempts allowed in a row for one username.
+     * @param userPerMinute    The rate at which a username regains attempts.
+     * @param addressBurst     The attempts allowed in a row from one client address.
+     * @param addressPerMinute The rate at which an address regains attempts.
+     */
+    public LoginRateLimiter(int userBurst, int userPerMinute, int addressBurst, int addressPerMinute) {
+        this.userLimit = new Limit(userBurst, userPerMinute);
+        this.addressLimit = new Limit(addressBurst, addressPerMinute);
+    }
+
+    /**
+     * Takes a token for a login attempt. The address is checked first, so attempts rejected for their
+     * address do not use up the targeted username's tokens.
+     *
+     * @param username      The username being logged in to.
+     * @param clientAddress The client's address, or {@code null} if unknown (for example a local login).
+     * @return {@code true} if the attempt may go ahead.
+     */
+    public boolean tryAcquire(String username, String clientAddress) {
+        long now = System.nanoTime();
+        if (attemptsSinceSweep.incrementAndGet() >= SWEEP_INTERVAL) {
+            attemptsSinceSweep.set(0);
+            sweep(now);
+        }
+        if (clientAddress != null && !addressLimit.tryAcquire(clientAddress, now)) {
+            rejectedByAddress.increment();
+            return false;
+        }
+        if (!userLimit.tryAcquire(username, now)) {
+            rejectedByUser.increment();
+            return false;
+        }
+        accepted.increment();
+        return true;
+    }
+
+    /**
+     * Refills a username's bucket after a successful login, so earlier typos do not count against later logins.
+     *
+     * @param username The username that logged in.
+     */
+    public void loginSucceeded(String username) {
+        userLimit.buckets.remove(username);
+    }
+
+    /**
+     * @return the number of attempts let through.
+     */
+    public long getAcceptedCount() {
+        return accepted.sum();
+    }
+
+    /**
+     * @return the number of attempts rejected because their username ran out of tokens.
+     */
+    public long getRejectedByUserCount() {
+        return rejectedByUser.sum();
+    }
+
+    /**
+     * @return the number of attempts rejected because their client address ran out of tokens.
+     */
+    public long getRejectedByAddressCount() {
+        return rejectedByAddress.sum();
+    }
+
+    /**
+     * @return the number of idle buckets dropped by sweeps.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the number of usernames and addresses currently tracked.
+     */
+    public int trackedCount() {
+        return userLimit.buckets.size() + addressLimit.buckets.size();
+    }
+
+    private void sweep(long now) {
+        evictions.add(userLimit.sweep(now) + addressLimit.sweep(now));
+    }
+
+    /**
+     * Token buckets for one kind of key.
+     * <p>
+     * A bucket with {@code n} tokens missing is full again {@code n * interval} from now, so it is stored as
+     * just that time: taking a token moves it one interval later, and is refused when that would put it more
+     * than {@code burst} intervals ahead of now.
+     * </p>
+     */
+    private static final class Limit {
+        private final long intervalNanos;
+        private final long capacityNanos;
+        private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+        private Limit(int burst, int perMinute) {
+            if (burst < 1 || perMinute < 1) {
+                throw new IllegalArgumentException("burst and perMinute must be positive");
+            }
+            this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / perMinute;
+            this.capacityNanos = intervalNanos * burst;
+        }
+
+        private boolean tryAcquire(String key, long now) {
+            AtomicLong fullAt = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+            while (true) {
+                long current = fullAt.get();
+                long next = Math.max(current, now) + intervalNanos;
+                if (next - now > capacityNanos) {
+                    return false;
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return true;
+                }
+            }
+        }
+
+        // A thread that fetched a bucket just before it is removed still updates the old one, which at
+        // worst lets one extra attempt through.
+        private int sweep(long now) {
+            int removed = 0;
+            for (Map.Entry<String, AtomicLong> entry : buckets.entrySet()) {
+                AtomicLong fullAt = entry.getValue();
+                if (fullAt.get() - now <= 0 && buckets.remove(entry.getKey(), fullAt)) {
+                    removed++;
+                }
+            }
+            return removed;
+        }
+    }
+}
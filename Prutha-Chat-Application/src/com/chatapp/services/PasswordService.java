@@ -0,0 +1,172 @@
+package com.chatapp.services;
+
+import com.chatapp.utils.PasswordHasher;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Hashes and verifies passwords on a small dedicated thread pool.
+ * <p>
+ * A password hash costs tens of milliseconds of CPU on purpose, so a burst of logins hashed on the
+ * threads that also handle messages would stall every chat. Here at most {@code chatapp.password.threads}
+ * hashes run at once, and at most {@code chatapp.password.queueSize} more wait for a thread; any further
+ * request fails straight away with an {@link IllegalStateException} instead of piling up. The calling thread
+ * waits for its own result, but never competes for CPU with more than the pool's threads. Callers that must
+ * not block, such as the chat server's shared command threads, use the {@code ...Async} variants and
+ * continue when the returned future completes.
+ * </p>
+ * <p>
+ * Checking a password against a {@code null} hash, as for a username that does not exist, still runs a
+ * full PBKDF2 verification against a dummy hash, so the response time does not reveal which usernames exist.
+ * </p>
+ * <p>
+ * The PBKDF2 work factor comes from {@code chatapp.password.iterations}. Raising it makes new hashes
+ * stronger, and older ones are upgraded as their users log in.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+public class PasswordService {
+    // Tuning; each value can be overridden with a -D system property of the same name.
+    private static final int ITERATIONS = Integer.getInteger("chatapp.password.iterations", 210_000);
+    private static final int THREADS = Integer.getInteger("chatapp.password.threads",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    private static final int QUEUE_SIZE = Integer.getInteger("chatapp.password.queueSize", 32);
+
+    private final PasswordHasher hasher;
+    private final ThreadPoolExecutor executor;
+    private final LongAdder rejected = new LongAdder();
+    private final String dummyHash;
+
+    public PasswordService() {
+        this(ITERATIONS, THREADS, QUEUE_SIZE);
+    }
+
+    /**
+     * @param iterations The PBKDF2 iteration count for new hashes.
+     * @param threads    The number of hashes computed at once.
+     * @param queueSize  The number of hashes that may wait for a thread before new ones are rejected.
+     */
+    public PasswordService(int iterations, int threads, int queueSize) {
+        this.hasher = new PasswordHasher(iterations);
+        byte[] dummyPassword = new byte[16];
+        new SecureRandom().nextBytes(dummyPassword);
+        // Hashed up front, so unknown usernames cost the same from the very first login.
+        this.dummyHash = hasher.hash(Base64.getEncoder().encodeToString(dummyPassword));
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + counter.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Hashes a password for storage.
+     *
+     * @param password The password.
+     * @return The encoded hash.
+     * @throws IllegalStateException if too many hashes are already in progress.
+     */
+    public String hash(String password) {
+        return join(hashAsync(password));
+    }
+
+    /**
+     * Hashes a password for storage without blocking the caller.
+     *
+     * @param password The password.
+     * @return A future for the encoded hash, failed with an {@link IllegalStateException} if too many hashes
+     *         are already in progress.
+     */
+    public CompletableFuture<String> hashAsync(String password) {
+        return submit(() -> hasher.hash(password));
+    }
+
+    /**
+     * Checks a password against its stored hash.
+     *
+     * @param password The password to check.
+     * @param stored   The stored hash, a legacy Caesar-encoded password, or {@code null} for an unknown user.
+     * @return {@code true} if the password is correct; always {@code false} for a {@code null} hash.
+     * @throws IllegalStateException if too many hashes are already in progress.
+     */
+    public boolean matches(String password, String stored) {
+        return join(matchesAsync(password, stored));
+    }
+
+    /**
+     * Checks a password against its stored hash without blocking the caller.
+     *
+     * @param password The password to check.
+     * @param stored   The stored hash, a legacy Caesar-encoded password, or {@code null} for an unknown user.
+     * @return A future that is {@code true} if the password is correct, failed with an
+     *         {@link IllegalStateException} if too many hashes are already in progress.
+     */
+    public CompletableFuture<Boolean> matchesAsync(String password, String stored) {
+        if (stored == null) {
+            // Spend the same work as for a real user, so unknown usernames cannot be told apart by timing.
+            return submit(() -> {
+                hasher.matches(password, dummyHash);
+                return false;
+            });
+        }
+        return submit(() -> hasher.matches(password, stored));
+    }
+
+    /**
+     * Checks, without hashing anything, whether a stored password should be replaced with a new hash.
+     *
+     * @param stored The stored hash.
+     * @return {@code true} if it is a legacy password or uses fewer iterations than now configured.
+     */
+    public boolean needsRehash(String stored) {
+        return hasher.needsRehash(stored);
+    }
+
+    /**
+     * @return the number of requests turned away because the pool and its queue were full.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return the number of hashes running or waiting right now.
+     */
+    public int getPendingCount() {
+        return executor.getActiveCount() + executor.getQueue().size();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(
+                    new IllegalStateException("Too many logins in progress. Please try again shortly.", e));
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.chatapp.services;
+
+import com.chatapp.models.User;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks which users are online, how many sessions each has open, and which chat rooms they are in.
+ * <p>
+ * Only online users are held: a user is added when their first session opens and removed as soon as
+ * their last one closes, so memory follows the number of connected users rather than every user who ever
+ * logged in. Users are keyed by their numeric ID.
+ * </p>
+ * <p>
+ * A second index maps each chat room ID to the users online in it, so "who is online in room X" is a
+ * single lookup rather than a scan over every user. Both indexes are concurrent maps; all changes for one
+ * user happen inside that user's {@link ConcurrentHashMap#compute} call, which keeps the two indexes in
+ * step without a global lock.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+public class PresenceService {
+    private final Map<Integer, Presence> onlineUsers = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<Integer>> onlineByRoom = new ConcurrentHashMap<>();
+
+    /**
+     * Records that a user opened a session.
+     *
+     * @param user The user who logged in.
+     * @return the number of sessions the user now has open; {@code 1} means they just came online.
+     */
+    public int sessionOpened(User user) {
+        int[] sessions = new int[1];
+        onlineUsers.compute(user.getUserId(), (id, current) -> {
+            Presence presence = current != null ? current : new Presence(user);
+            sessions[0] = ++presence.sessions;
+            return presence;
+        });
+        return sessions[0];
+    }
+
+    /**
+     * Records that one of a user's sessions closed. When it was the last one the user goes offline and
+     * leaves every chat room.
+     *
+     * @param userId The ID of the user.
+     * @return the number of sessions the user still has open; {@code 0} means they are now offline.
+     */
+    public int sessionClosed(int userId) {
+        int[] sessions = new int[1];
+        onlineUsers.computeIfPresent(userId, (id, presence) -> {
+            sessions[0] = --presence.sessions;
+            return sessions[0] > 0 ? presence : forget(presence);
+        });
+        return sessions[0];
+    }
+
+    /**
+     * Takes a user offline at once, however many sessions they have open, for example on shutdown.
+     *
+     * @param userId The ID of the user.
+     * @return {@code true} if the user was online.
+     */
+    public boolean removeUser(int userId) {
+        boolean[] wasOnline = new boolean[1];
+        onlineUsers.computeIfPresent(userId, (id, presence) -> {
+            wasOnline[0] = true;
+            return forget(presence);
+        });
+        return wasOnline[0];
+    }
+
+    private Presence forget(Presence presence) {
+        for (Integer chatRoomId : presence.rooms.keySet()) {
+            removeFromRoom(chatRoomId, presence.user.getUserId());
+        }
+        return null;
+    }
+
+    /**
+     * Records that one of a user's sessions joined a chat room. Ignored if the user is not online.
+     *
+     * @param userId     The ID of the user.
+     * @param chatRoomId The ID of the chat room.
+     */
+    public void enterRoom(int userId, int chatRoomId) {
+        onlineUsers.computeIfPresent(userId, (id, presence) -> {
+            if (presence.rooms.merge(chatRoomId, 1, Integer::sum) == 1) {
+                // compute, not computeIfAbsent + add, so this cannot race with removeFromRoom dropping the set.
+                onlineByRoom.compute(chatRoomId, (room, users) -> {
+                    Set<Integer> members = users != null ? users : ConcurrentHashMap.newKeySet();
+                    members.add(id);
+                    return members;
+                });
+            }
+            return presence;
+        });
+    }
+
+    /**
+     * Records that one of a user's sessions left a chat room. The user stays listed in the room while
+     * any of their other sessions is still in it.
+     *
+     * @param userId     The ID of the user.
+     * @param chatRoomId The ID of the chat room.
+     */
+    public void leaveRoom(int userId, int chatRoomId) {
+        onlineUsers.computeIfPresent(userId, (id, presence) -> {
+            Integer remaining = presence.rooms.computeIfPresent(chatRoomId, (room, count) -> count > 1 ? count - 1 : null);
+            if (remaining == null) {
+                removeFromRoom(chatRoomId, id);
+            }
+            return presence;
+        });
+    }
+
+    private void removeFromRoom(int chatRoomId, int userId) {
+        onlineByRoom.computeIfPresent(chatRoomId, (room, users) -> {
+            users.remove(userId);
+            return users.isEmpty() ? null : users;
+        });
+    }
+
+    /**
+     * @param userId The ID of the user.
+     * @return {@code true} if the user has at least one open session.
+     */
+    public boolean isOnline(int userId) {
+        return onlineUsers.containsKey(userId);
+    }
+
+    /**
+     * @param userId The ID of the user.
+     * @return the number of sessions the user has open, or {@code 0} if they are offline.
+     */
+    public int getSessionCount(int userId) {
+        Presence presence = onlineUsers.get(userId);
+        return presence == null ? 0 : presence.sessions;
+    }
+
+    /**
+     * @return the number of users currently online.
+     */
+    public int getOnlineCount() {
+        return onlineUsers.size();
+    }
+
+    /**
+     * @return a snapshot of every user currently online.
+     */
+    public List<User> getOnlineUsers() {
+        List<User> users = new ArrayList<>(onlineUsers.size());
+        for (Presence presence : onlineUsers.values()) {
+            users.add(presence.user);
+        }
+        return users;
+    }
+
+    /**
+     * Lists the users online in a chat room without looking at users in other rooms.
+     *
+     * @param chatRoomId The ID of the chat room.
+     * @return a snapshot of the IDs of users with a session in the room.
+     */
+    public Set<Integer> getOnlineUserIds(int chatRoomId) {
+        Set<Integer> users = onlineByRoom.get(chatRoomId);
+        return users == null ? Collections.emptySet() : Set.copyOf(users);
+    }
+
+    /**
+     * Per-user state. Only changed inside {@code compute} calls on {@link #onlineUsers}; {@code sessions} is
+     * volatile so {@link #getSessionCount(int)} can read it without locking.
+     */
+    private static final class Presence {
+        private final User user;
+        private volatile int sessions;
+        // Chat room ID to the number of this user's sessions in that room.
+        private final Map<Integer, Integer> rooms = new HashMap<>();
+
+        private Presence(User user) {
+            this.user = user;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.chatapp.services;
+
+import com.chatapp.models.RegisterUser;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of users keyed by username, sitting in front of the database lookups in {@link UserManager}.
+ * <p>
+ * Entries are evicted when:
+ * <ul>
+ *     <li>the cache holds more than {@code maxSize} users (the least recently used one goes), or</li>
+ *     <li>they are older than {@code ttlMillis}, checked when they are next read, or</li>
+ *     <li>they are invalidated explicitly, for example after a user registers or changes their password.</li>
+ * </ul>
+ * Unknown usernames are not cached, so a user who registers later is found on the next lookup.
+ * </p>
+ * <p>
+ * The map is guarded by its own monitor, but the database load on a miss runs outside it, so a slow
+ * query never blocks hits for other users. Every invalidation bumps a generation counter, and a load only
+ * caches its result if no invalidation happened while it ran; otherwise a row read just before, say, a
+ * password change could be cached again after the change was invalidated. Hit, miss and eviction
+ * counters are kept for monitoring.
+ * </p>
+ * <p>
+ * {@code RegisterUser} is mutable, so the cache keeps its own copy of each user and hands out copies;
+ * a caller changing the user it got back does not change what other callers see.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+public final class UserCache {
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<String, Entry> entries;
+    private long generation; // Guarded by entries.
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maxSize   The maximum number of users kept.
+     * @param ttlMillis How long a cached user stays valid.
+     */
+    UserCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        // Access-ordered, so the eldest entry is the least recently used one.
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > UserCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached user for the username, loading and caching it on a miss.
+     *
+     * @param username The username to look up.
+     * @param loader   Loads the user from the database; may return {@code null} for unknown users.
+     * @return The user, or {@code null} if the loader found none.
+     */
+    RegisterUser get(String username, Function<String, RegisterUser> loader) {
+        long now = System.nanoTime();
+        long loadGeneration;
+        synchronized (entries) {
+            Entry entry = entries.get(username);
+            if (entry != null) {
+                if (now - entry.loadedAtNanos < ttlNanos) {
+                    hits.increment();
+                    return copy(entry.user);
+                }
+                entries.remove(username);
+                evictions.increment();
+            }
+            loadGeneration = generation;
+        }
+        misses.increment();
+        RegisterUser user = loader.apply(username);
+        if (user != null) {
+            put(user, loadGeneration);
+        }
+        return user;
+    }
+
+    /**
+     * Returns the current generation, to pass to {@link #put(RegisterUser, long)} for a user loaded after this call.
+     *
+     * @return the number of invalidations so far.
+     */
+    long generation() {
+        synchronized (entries) {
+            return generation;
+        }
+    }
+
+    /**
+     * Caches a user that was loaded elsewhere, such as during login, unless an invalidation happened since
+     * the load began. A copy is cached, so the caller may keep changing its own instance.
+     *
+     * @param user           The user.
+     * @param loadGeneration The {@link #generation()} taken before the user was read from the database.
+     */
+    void put(RegisterUser user, long loadGeneration) {
+        Entry entry = new Entry(copy(user), System.nanoTime());
+        synchronized (entries) {
+            if (generation == loadGeneration) {
+                entries.put(user.getUserName(), entry);
+            }
+        }
+    }
+
+    /**
+     * Removes a user so the next lookup reads it from the database again, and drops any load of it still in
+     * progress.
+     */
+    void invalidate(String username) {
+        synchronized (entries) {
+            generation++;
+            entries.remove(username);
+        }
+    }
+
+    /**
+     * Removes every cached user.
+     */
+    void invalidateAll() {
+        synchronized (entries) {
+            generation++;
+            entries.clear();
+        }
+    }
+
+    private static RegisterUser copy(RegisterUser user) {
+        RegisterUser copy = new RegisterUser(user.getUserId(), user.getName(), user.getUserName(), user.getPassword());
+        copy.setUserStatus(user.getUserStatus());
+        return copy;
+    }
+
+    /**
+     * @return the number of users currently cached.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return the number of lookups answered from the cache.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups that went to the database.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of users evicted for size or age; explicit invalidations are not counted.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the fraction of lookups answered from the cache, or {@code 0} if there were none.
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("UserCache{size=%d/%d, hits=%d, misses=%d, evictions=%d, hitRate=%.2f}",
+                size(), maxSize, getHitCount(), getMissCount(), getEvictionCount(), getHitRate());
+    }
+
+    private static final class Entry {
+        private final RegisterUser user;
+        private final long loadedAtNanos;
+
+        private Entry(RegisterUser user, long loadedAtNanos) {
+            this.user = user;
+            this.loadedAtNanos = loadedAtNanos;
+        }
+    }
+}
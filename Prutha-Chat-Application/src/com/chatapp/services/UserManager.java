@@ -2,16 +2,12 @@ package com.chatapp.services;
 
 import com.chatapp.database.DatabaseManager;
 import com.chatapp.models.RegisterUser;
-import com.chatapp.utils.CaesarCipher;
+import com.chatapp.models.User;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -25,16 +21,42 @@ import java.util.concurrent.atomic.AtomicInteger;
  * operations, ensuring the application's front-end user functionalities synchronize seamlessly
  * with the underlying database.</p>
  *
+ * <p>Lookups by username go through a {@link UserCache}, so repeated lookups of the same user (for
+ * example the sender and receiver of every message) do not each cost a database round trip. Its size
+ * and time-to-live come from the {@code chatapp.users.cache.maxSize} and
+ * {@code chatapp.users.cache.ttlMillis} system properties.</p>
+ *
+ * <p>Who is online is tracked by a {@link PresenceService}, which holds only users with open sessions and
+ * allows several sessions per user. A user is marked offline in the database only when their last session
+ * logs out.</p>
+ *
+ * <p>Passwords are stored as salted PBKDF2 hashes and checked in Java after the user is fetched by
+ * username, on the bounded pool of a {@link PasswordService}. Users whose stored password is still in the
+ * old Caesar-encoded form, or hashed with fewer iterations than now configured, get a fresh hash written
+ * back when they next log in successfully. {@link #loginAsync(String, String, String)} returns as soon as the
+ * check is queued, for callers whose threads must not wait on it, and an unknown username costs the same
+ * hashing work as a wrong password.</p>
+ *
+ * <p>Before any of that, each attempt must get past a {@link LoginRateLimiter}, which throttles repeated
+ * failures per username and per client address without touching the database.</p>
+ *
  * @author Prutha Upadhyay
  */
 public class UserManager {
 
+    // User cache tuning; each value can be overridden with a -D system property of the same name.
+    private static final int USER_CACHE_MAX_SIZE = Integer.getInteger("chatapp.users.cache.maxSize", 1_000);
+    private static final long USER_CACHE_TTL_MILLIS = Long.getLong("chatapp.users.cache.ttlMillis", 60_000);
+
     private final List<RegisterUser> registerUsers = new ArrayList<>();
     private final DatabaseManager databaseManager;
     private final AtomicInteger userIdCnt = new AtomicInteger(0);
+    private final UserCache userCache = new UserCache(USER_CACHE_MAX_SIZE, USER_CACHE_TTL_MILLIS);
     private RegisterUser currentUser;
-    private Map<String, Boolean> loggedInUsers = new HashMap<>(); // Map to store logged-in status of users
-    
+    private final PresenceService presence = new PresenceService();
+    private final PasswordService passwords = new PasswordService();
+    private final LoginRateLimiter loginLimiter = new LoginRateLimiter();
+
 
     // Other methods in the UserManager class...
 
@@ -42,8 +64,24 @@ public class UserManager {
     public UserManager(DatabaseManager databaseManager) {
         this.databaseManager = databaseManager;
     }
+    /**
+     * Checks whether a user has at least one open session.
+     *
+     * @param senderUsername The username of the user.
+     * @return {@code true} if the user is logged in; {@code false} otherwise.
+     */
     public boolean isLoggedIn(String senderUsername) {
-        return loggedInUsers.getOrDefault(senderUsername, false);
+        RegisterUser user = getUserByUsername(senderUsername);
+        return user != null && presence.isOnline(user.getUserId());
+    }
+
+    /**
+     * Returns the presence service tracking online users, their sessions and the chat rooms they are in.
+     *
+     * @return The presence service.
+     */
+    public PresenceService getPresence() {
+        return presence;
     }
 
     /**
@@ -67,13 +105,15 @@ public class UserManager {
      * @param name     Display name of the user.
      * @param userName The unique identifier chosen by the user for logging into the system.
      * @param password The authentication password specified by the user.
+     * @throws IllegalStateException if too many passwords are being hashed right now.
      */
     public void registerUser(String name, String userName, String password) {
         int newId = generateUserId();
-        String encryptedPassword = CaesarCipher.encrypt(password, 3);
-        RegisterUser regUser = new RegisterUser(newId, name, userName, encryptedPassword);
+        String passwordHash = passwords.hash(password);
+        RegisterUser regUser = new RegisterUser(newId, name, userName, passwordHash);
         registerUsers.add(regUser);
         databaseManager.storeRegisteredUser(regUser);
+        userCache.invalidate(userName);
 
         currentUser = regUser; // Set the current user to the newly registered user
     }
@@ -86,6 +126,7 @@ public class UserManager {
      * @param username The unique identifier of the user.
      * @param password The authentication password of the user.
      * @return The authenticated user if credentials are valid, or {@code null} if authentication fails.
+     * @throws IllegalStateException if the attempt is throttled or too many passwords are being verified.
      */
     // public RegisterUser login(String username, String password) {
     //     try (Connection connection = databaseManager.getConnection()) {
@@ -127,55 +168,106 @@ public class UserManager {
     // }
 
     public RegisterUser login(String username, String password) {
-        try (Connection connection = databaseManager.getConnection()) {
-            // Encrypt the provided password before querying the database
-            String encryptedPassword = CaesarCipher.encrypt(password, 3); // Use the same shift key as during registration
-    
-            String sql = "SELECT * FROM User WHERE username = ? AND password = ?";
-            PreparedStatement preparedStatement = connection.prepareStatement(sql);
-            preparedStatement.setString(1, username);
-            preparedStatement.setString(2, encryptedPassword); // Use the encrypted password in the query
-    
-            ResultSet resultSet = preparedStatement.executeQuery();
-    
-            if (resultSet.next()) {
-                int userId = resultSet.getInt("userId");
-                String name = resultSet.getString("name");
-                String dbUsername = resultSet.getString("username");
-                String dbPassword = resultSet.getString("password"); // No need to decrypt
-    
-                // Decrypt the password from the database if necessary (depending on your implementation)
-                // String decryptedPassword = CaesarCipher.decrypt(dbPassword, 3);
-    
-                RegisterUser loggedInUser = new RegisterUser(userId, name, dbUsername, dbPassword);
-                loggedInUser.setUserStatus(true);
-    
-                // Update user status to online in the database
-                databaseManager.updateUserOnlineStatus(loggedInUser);
-                loggedInUsers.put(username, true);
-    
-                currentUser = loggedInUser; // Set the current user upon successful login
-    
-                return loggedInUser;
+        return login(username, password, null);
+    }
+
+    /**
+     * Attempts to authenticate a user's login, like {@link #login(String, String)}, for a client at a
+     * known address; attempts are throttled per address as well as per username.
+     *
+     * @param username      The unique identifier of the user.
+     * @param password      The authentication password of the user.
+     * @param clientAddress The client's address, or {@code null} for a local login.
+     * @return The authenticated user if credentials are valid, or {@code null} if authentication fails.
+     * @throws IllegalStateException if the attempt is throttled or too many passwords are being verified.
+     */
+    public RegisterUser login(String username, String password, String clientAddress) {
+        try {
+            return loginAsync(username, password, clientAddress).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
+            throw e;
         }
-    
-        return null; // Login failed...
     }
-    
 
     /**
-     * Updates the user's status to offline in both the application session and the database.
+     * Attempts to authenticate a user's login like {@link #login(String, String, String)}, but returns as
+     * soon as the password check is queued; the rest of the login runs on the password pool when it finishes.
+     *
+     * @param username      The unique identifier of the user.
+     * @param password      The authentication password of the user.
+     * @param clientAddress The client's address, or {@code null} for a local login.
+     * @return A future for the authenticated user, or for {@code null} if authentication fails. It fails with
+     *         an {@link IllegalStateException} if the attempt is throttled or too many passwords are being verified.
+     */
+    public CompletableFuture<RegisterUser> loginAsync(String username, String password, String clientAddress) {
+        if (!loginLimiter.tryAcquire(username, clientAddress)) {
+            return CompletableFuture.failedFuture(
+                    new IllegalStateException("Too many login attempts. Please wait a moment and try again."));
+        }
+
+        // One point lookup on the unique username index; salted hashes cannot be matched in the WHERE
+        // clause, so the password is verified on the password pool. An unknown user is checked against a
+        // dummy hash, so it takes as long as a wrong password.
+        long cacheGeneration = userCache.generation();
+        RegisterUser user = databaseManager.fetchUserByUsername(username);
+        return passwords.matchesAsync(password, user != null ? user.getPassword() : null)
+                .thenApply(matches -> matches ? completeLogin(user, username, password, cacheGeneration) : null);
+    }
+
+    private RegisterUser completeLogin(RegisterUser loggedInUser, String username, String password,
+                                       long cacheGeneration) {
+        loginLimiter.loginSucceeded(username);
+        if (passwords.needsRehash(loggedInUser.getPassword())) {
+            upgradePassword(loggedInUser, password);
+        }
+
+        loggedInUser.setUserStatus(true);
+
+        // Queue the online status for the database when this is the user's first session; it is
+        // written in the background, coalesced with other users' changes.
+        if (presence.sessionOpened(loggedInUser) == 1) {
+            databaseManager.queueOnlineStatus(loggedInUser.getUserId(), true);
+        }
+        userCache.put(loggedInUser, cacheGeneration);
+
+        currentUser = loggedInUser; // Set the current user upon successful login
+
+        return loggedInUser;
+    }
+
+    // Replaces a legacy or weaker stored password now that the plain password is known to be right. Runs in
+    // the background: the login does not wait for it, and never waits on the pool from one of its own threads.
+    private void upgradePassword(RegisterUser user, String password) {
+        passwords.hashAsync(password).thenAccept(passwordHash -> {
+            if (databaseManager.updatePassword(user.getUserId(), passwordHash)) {
+                user.setPassword(passwordHash);
+                userCache.invalidate(user.getUserName());
+            }
+        }).exceptionally(e -> {
+            // A busy pool just means the upgrade is retried at the next login.
+            if (!(e.getCause() instanceof IllegalStateException)) {
+                e.printStackTrace();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Closes one of the user's sessions. When it was the last one, the user's status is set to offline
+     * in both the application session and the database.
      *
      * @param user The user who is to be logged out.
      */
     public void logout(RegisterUser user) {
+        if (presence.sessionClosed(user.getUserId()) > 0) {
+            return; // Still logged in elsewhere
+        }
         user.setUserStatus(false);// marking the user offline
-        loggedInUsers.put(user.getUserName(), false);
-        //database entry for offline
-        databaseManager.updateUserOnlineStatus(user);
+        //database entry for offline, written in the background
+        databaseManager.queueOnlineStatus(user.getUserId(), false);
     }
 
     /**
@@ -188,24 +280,62 @@ public class UserManager {
     }
 
     /**
-     * Queries the database to retrieve details of a user based on their unique username.
+     * Retrieves details of a user based on their unique username, from the user cache when possible
+     * and from the database otherwise.
      *
      * @param username The unique identifier of the desired user.
      * @return A {@code RegisterUser} object containing details of the user if found, or {@code null} if not present.
      */
     public RegisterUser getUserByUsername(String username) {
-        return databaseManager.fetchUserByUsername(username);
+        return userCache.get(username, databaseManager::fetchUserByUsername);
+    }
+
+    /**
+     * Drops a user from the user cache so the next lookup reads it from the database. Call this after
+     * changing the user's row outside this class, for example after a password change.
+     *
+     * @param username The username of the changed user.
+     */
+    public void invalidateUser(String username) {
+        userCache.invalidate(username);
+    }
+
+    /**
+     * Returns the login rate limiter, for its accepted and rejected attempt counters.
+     *
+     * @return The login rate limiter.
+     */
+    public LoginRateLimiter getLoginRateLimiter() {
+        return loginLimiter;
+    }
+
+    /**
+     * Returns the password service, for its rejected and pending counters.
+     *
+     * @return The password service.
+     */
+    public PasswordService getPasswordService() {
+        return passwords;
+    }
+
+    /**
+     * Returns the user cache, for its size and hit, miss and eviction counters.
+     *
+     * @return The user cache.
+     */
+    public UserCache getUserCache() {
+        return userCache;
     }
     public void logoutAllUsersOnExit() {
-        for (Map.Entry<String, Boolean> entry : loggedInUsers.entrySet()) {
-            if (entry.getValue()) { // Check if the user is logged in
-                RegisterUser user = getUserByUsername(entry.getKey());
-                if (user != null) {
-                    logout(user);
-                    System.out.println("Logged out user '" + user.getUserName() + "' on program exit.");
-                }
+        for (User user : presence.getOnlineUsers()) {
+            if (presence.removeUser(user.getUserId())) {
+                user.setUserStatus(false);
+                databaseManager.queueOnlineStatus(user.getUserId(), false);
+                System.out.println("Logged out user '" + user.getName() + "' on program exit.");
             }
         }
+        // Written as one batched statement rather than one UPDATE per user.
+        databaseManager.flushOnlineStatus();
     }
 
     
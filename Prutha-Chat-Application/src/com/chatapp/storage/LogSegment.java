@@ -0,0 +1,349 @@
+package com.chatapp.storage;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * One segment of a {@link MessageLog}: a {@code .log} file of records with consecutive offsets starting
+ * at {@link #getBaseOffset()}, and a sparse {@code .index} file beside it.
+ * <p>
+ * A record is a 4 byte payload length, a 4 byte CRC32 of the payload, then the payload, which starts
+ * with the record's 8 byte offset. The index holds one 8 byte entry (offset relative to the base, file
+ * position) every {@code indexIntervalBytes} of log, so finding an offset costs a binary search over a few
+ * thousand entries plus a scan of at most one interval. The entries are also kept in memory.
+ * </p>
+ * <p>
+ * Appends come from one thread at a time (the log's lock); reads may run concurrently from any thread and
+ * only see records whose write has completed, because {@link #size} is published after each write.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+final class LogSegment implements Closeable {
+    static final int HEADER_BYTES = 8; // length + CRC32
+    private static final int INDEX_ENTRY_BYTES = 8;
+    private static final int READ_CHUNK_BYTES = 64 * 1024;
+
+    /**
+     * Receives each valid record found by {@link #scan}.
+     */
+    interface RecordVisitor {
+        /**
+         * @param offset  The record's offset.
+         * @param payload The record's payload, positioned just after the offset.
+         * @return {@code false} to stop scanning.
+         */
+        boolean visit(long offset, ByteBuffer payload);
+    }
+
+    private final long baseOffset;
+    private final Path logPath;
+    private final Path indexPath;
+    private final FileChannel log;
+    private final FileChannel index;
+    private final int indexIntervalBytes;
+    private final int maxRecordBytes;
+
+    private volatile long size;
+    private long nextOffset; // Only used by the appending thread.
+    private long bytesSinceIndexEntry;
+    // Packed (relativeOffset << 32 | position) entries; the count is published after the entry is stored.
+    private volatile long[] indexEntries = new long[64];
+    private volatile int indexEntryCount;
+
+    private LogSegment(Path directory, long baseOffset, int indexIntervalBytes, int maxRecordBytes) throws IOException {
+        this.baseOffset = baseOffset;
+        this.logPath = directory.resolve(fileName(baseOffset, ".log"));
+        this.indexPath = directory.resolve(fileName(baseOffset, ".index"));
+        this.indexIntervalBytes = indexIntervalBytes;
+        this.maxRecordBytes = maxRecordBytes;
+        this.log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.index = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Creates a new, empty segment.
+     */
+    static LogSegment create(Path directory, long baseOffset, int indexIntervalBytes, int maxRecordBytes)
+            throws IOException {
+        LogSegment segment = new LogSegment(directory, baseOffset, indexIntervalBytes, maxRecordBytes);
+        segment.log.truncate(0);
+        segment.index.truncate(0);
+        segment.nextOffset = baseOffset;
+        return segment;
+    }
+
+    /**
+     * Opens an existing segment, checking every record after its last index entry and cutting the files
+     * back to the last intact record, which drops whatever a crash left half written.
+     */
+    static LogSegment open(Path directory, long baseOffset, int indexIntervalBytes, int maxRecordBytes)
+            throws IOException {
+        LogSegment segment = new LogSegment(directory, baseOffset, indexIntervalBytes, maxRecordBytes);
+        segment.recover();
+        return segment;
+    }
+
+    static String fileName(long baseOffset, String suffix) {
+        return String.format("%020d%s", baseOffset, suffix);
+    }
+
+    long getBaseOffset() {
+        return baseOffset;
+    }
+
+    /**
+     * @return the offset the next record appended to this segment gets.
+     */
+    long getNextOffset() {
+        return nextOffset;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    long lastModifiedMillis() throws IOException {
+        return Files.getLastModifiedTime(logPath).toMillis();
+    }
+
+    /**
+     * Appends one encoded record, whose payload must start with {@link #getNextOffset()}.
+     */
+    void append(ByteBuffer record) throws IOException {
+        long position = size;
+        if (bytesSinceIndexEntry >= indexIntervalBytes) {
+            addIndexEntry(nextOffset - baseOffset, position);
+            bytesSinceIndexEntry = 0;
+        }
+        int length = record.remaining();
+        writeFully(log, record, position);
+        bytesSinceIndexEntry += length;
+        nextOffset++;
+        size = position + length;
+    }
+
+    /**
+     * Reads up to {@code maxMessages} records, starting at {@code fromOffset} or the first record after it.
+     *
+     * @return the number of records passed to the visitor.
+     */
+    int read(long fromOffset, int maxMessages, RecordVisitor visitor) throws IOException {
+        int[] count = {0};
+        scan(lookup(fromOffset), size, (offset, payload) -> {
+            if (offset < fromOffset) {
+                return true;
+            }
+            count[0]++;
+            return visitor.visit(offset, payload) && count[0] < maxMessages;
+        });
+        return count[0];
+    }
+
+    /**
+     * Forces written records to disk.
+     */
+    void force() throws IOException {
+        log.force(false);
+    }
+
+    /**
+     * Forces the log and its index to disk, for a segment that takes no more appends.
+     */
+    void forceAll() throws IOException {
+        log.force(false);
+        index.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            log.close();
+        } finally {
+            index.close();
+        }
+    }
+
+    /**
+     * Closes the segment and deletes its files.
+     */
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(logPath);
+        Files.deleteIfExists(indexPath);
+    }
+
+    /**
+     * @return the position of the indexed record closest before {@code offset}, or 0.
+     */
+    private long lookup(long offset) {
+        int count = indexEntryCount;
+        long[] entries = indexEntries;
+        long target = offset - baseOffset;
+        int low = 0;
+        int high = count - 1;
+        long position = 0;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if ((entries[mid] >>> 32) <= target) {
+                position = entries[mid] & 0xFFFFFFFFL;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return position;
+    }
+
+    private void addIndexEntry(long relativeOffset, long position) throws IOException {
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_BYTES);
+        entry.putInt((int) relativeOffset).putInt((int) position).flip();
+        writeFully(index, entry, (long) indexEntryCount * INDEX_ENTRY_BYTES);
+        storeIndexEntry(relativeOffset, position);
+    }
+
+    private void storeIndexEntry(long relativeOffset, long position) {
+        int count = indexEntryCount;
+        if (count == indexEntries.length) {
+            indexEntries = Arrays.copyOf(indexEntries, count * 2);
+        }
+        indexEntries[count] = relativeOffset << 32 | position;
+        indexEntryCount = count + 1;
+    }
+
+    private void recover() throws IOException {
+        long fileSize = log.size();
+
+        // Keep the index entries that point inside the file and are in order; the rest are rebuilt below.
+        ByteBuffer entries = ByteBuffer.allocate((int) (index.size() / INDEX_ENTRY_BYTES * INDEX_ENTRY_BYTES));
+        readFully(index, entries, 0);
+        entries.flip();
+        long previousPosition = -1;
+        while (entries.remaining() >= INDEX_ENTRY_BYTES) {
+            long relativeOffset = entries.getInt() & 0xFFFFFFFFL;
+            long position = entries.getInt() & 0xFFFFFFFFL;
+            if (position <= previousPosition || position >= fileSize) {
+                break;
+            }
+            storeIndexEntry(relativeOffset, position);
+            previousPosition = position;
+        }
+        index.truncate((long) indexEntryCount * INDEX_ENTRY_BYTES);
+
+        // Check every record after the last index entry; the first damaged or out of sequence one ends the log.
+        long scanFrom = 0;
+        nextOffset = baseOffset;
+        if (indexEntryCount > 0) {
+            long last = indexEntries[indexEntryCount - 1];
+            scanFrom = last & 0xFFFFFFFFL;
+            nextOffset = baseOffset + (last >>> 32);
+        }
+        long[] position = {scanFrom};
+        IOException[] failure = {null};
+        scan(scanFrom, fileSize, (offset, payload) -> {
+            if (offset != nextOffset) {
+                return false;
+            }
+            try {
+                if (bytesSinceIndexEntry >= indexIntervalBytes) {
+                    addIndexEntry(offset - baseOffset, position[0]);
+                    bytesSinceIndexEntry = 0;
+                }
+            } catch (IOException e) {
+                failure[0] = e;
+                return false;
+            }
+            long length = HEADER_BYTES + Long.BYTES + payload.remaining();
+            position[0] += length;
+            bytesSinceIndexEntry += length;
+            nextOffset++;
+            return true;
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        long validSize = position[0];
+        if (validSize < fileSize) {
+            System.err.println("Message log " + logPath + ": dropped " + (fileSize - validSize)
+                    + " bytes after the last intact record");
+            log.truncate(validSize);
+        }
+        size = validSize;
+    }
+
+    /**
+     * Walks the records between two file positions, checking each one's length and CRC, until the visitor
+     * returns {@code false} or a record is incomplete or damaged.
+     *
+     * @return the position just after the last record visited.
+     */
+    private long scan(long from, long end, RecordVisitor visitor) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(READ_CHUNK_BYTES);
+        CRC32 crc = new CRC32();
+        long position = from;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            readFully(log, buffer, position);
+            buffer.flip();
+
+            long chunkStart = position;
+            while (buffer.remaining() >= HEADER_BYTES) {
+                int start = buffer.position();
+                int length = buffer.getInt(start);
+                int checksum = buffer.getInt(start + 4);
+                if (length < Long.BYTES || length > maxRecordBytes) {
+                    return position; // Damaged length.
+                }
+                if (buffer.remaining() < HEADER_BYTES + length) {
+                    if (chunkStart + start + HEADER_BYTES + length > end) {
+                        return position; // Torn write at the end of the file.
+                    }
+                    if (HEADER_BYTES + length > buffer.capacity()) {
+                        buffer = ByteBuffer.allocate(HEADER_BYTES + length); // Record larger than a chunk.
+                    }
+                    break; // Re-read from this record.
+                }
+                ByteBuffer payload = buffer.duplicate();
+                payload.position(start + HEADER_BYTES).limit(start + HEADER_BYTES + length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    return position;
+                }
+                long offset = payload.getLong();
+                buffer.position(start + HEADER_BYTES + length);
+                position = chunkStart + buffer.position();
+                if (!visitor.visit(offset, payload)) {
+                    return position;
+                }
+            }
+        }
+        return position;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of " + channel);
+            }
+            position += read;
+        }
+    }
+}
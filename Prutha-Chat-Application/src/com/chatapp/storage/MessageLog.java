@@ -0,0 +1,498 @@
+package com.chatapp.storage;
+
+import com.chatapp.models.Message;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * A chat room's durable message history: an append-only log split into fixed-size segment files.
+ * <p>
+ * Every appended message gets the next logical offset and is written to the end of the active segment
+ * with a single positional write, so an append costs the same however long the history is. When the
+ * active segment reaches {@code segmentBytes} it is forced to disk and a new one is started; old segments
+ * are then deleted once the log is larger than {@code retentionBytes} or they are older than
+ * {@code retentionMillis}. Each segment keeps a sparse index of offsets to file positions, so reads start
+ * close to the requested offset instead of at the beginning of the file. See {@link LogSegment} for the
+ * file layout.
+ * </p>
+ * <p>
+ * An append returns once its record is written to the operating system, not once it is on disk. Forcing
+ * to disk is batched (group commit): {@link #sync()} makes everything appended so far durable, and when
+ * several threads call it at once, one of them forces the file while the others wait and share the
+ * result. A background task also syncs every {@code flushIntervalMillis}, so after a crash at most that
+ * much history is lost. On open, every segment is checked from its last index entry and cut back to its
+ * last intact record, so a torn write at the tail is dropped instead of breaking the log.
+ * </p>
+ * <p>
+ * The defaults come from these system properties:
+ * <ul>
+ *     <li>{@code chatapp.log.segmentBytes}, 16 MiB,</li>
+ *     <li>{@code chatapp.log.indexIntervalBytes}, 4 KiB,</li>
+ *     <li>{@code chatapp.log.flushIntervalMillis}, 5 ms, or 0 to sync only when asked to,</li>
+ *     <li>{@code chatapp.log.retentionBytes}, 1 GiB, and</li>
+ *     <li>{@code chatapp.log.retentionMillis}, 0 for no age limit.</li>
+ * </ul>
+ * </p>
+ * <p>
+ * Appends are serialized; reads never block them and may run from any number of threads.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+public class MessageLog implements Closeable {
+    // Tuning; each value can be overridden with a -D system property of the same name.
+    private static final long SEGMENT_BYTES = Long.getLong("chatapp.log.segmentBytes", 16L * 1024 * 1024);
+    private static final int INDEX_INTERVAL_BYTES = Integer.getInteger("chatapp.log.indexIntervalBytes", 4096);
+    private static final long FLUSH_INTERVAL_MILLIS = Long.getLong("chatapp.log.flushIntervalMillis", 5);
+    private static final long RETENTION_BYTES = Long.getLong("chatapp.log.retentionBytes", 1024L * 1024 * 1024);
+    private static final long RETENTION_MILLIS = Long.getLong("chatapp.log.retentionMillis", 0);
+
+    /** Largest record accepted; anything longer found on disk is treated as damage. */
+    static final int MAX_RECORD_BYTES = 8 * 1024 * 1024;
+
+    private static final Pattern SEGMENT_FILE = Pattern.compile("\\d{20}\\.log");
+    private static final int FIXED_PAYLOAD_BYTES = 8 + 8 + 8 + 4 + 4; // offset, id, timestamp, sender, name length
+
+    // One thread flushes every open log; a flush of an idle log returns without touching the disk.
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "message-log-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path directory;
+    private final int chatRoomId;
+    private final long segmentBytes;
+    private final int indexIntervalBytes;
+    private final long retentionBytes;
+    private final long retentionMillis;
+    private final ConcurrentNavigableMap<Long, LogSegment> segments = new ConcurrentSkipListMap<>();
+    private final CRC32 crc = new CRC32();
+    private final ScheduledFuture<?> flushTask;
+
+    // Appends, rolls, retention and close are serialized on this; nextOffset is read without it.
+    private LogSegment active;
+    private ByteBuffer recordBuffer = ByteBuffer.allocate(1024);
+    private volatile long nextOffset;
+    private volatile boolean closed;
+
+    // Group commit state, guarded by syncMonitor.
+    private final Object syncMonitor = new Object();
+    private long durableOffset;
+    private boolean forcing;
+
+    /**
+     * Opens the log for a chat room with the tuning from the system properties, creating the directory if needed.
+     *
+     * @param directory  The directory holding this room's segments, used by no other log.
+     * @param chatRoomId The ID of the chat room, given to the messages read back.
+     * @return The opened log.
+     * @throws IOException if the directory or its segments cannot be opened.
+     */
+    public static MessageLog open(Path directory, int chatRoomId) throws IOException {
+        return new MessageLog(directory, chatRoomId, SEGMENT_BYTES, INDEX_INTERVAL_BYTES, FLUSH_INTERVAL_MILLIS,
+                RETENTION_BYTES, RETENTION_MILLIS);
+    }
+
+    /**
+     * Opens a log with explicit tuning.
+     *
+     * @param directory           The directory holding this room's segments, used by no other log.
+     * @param chatRoomId          The ID of the chat room, given to the messages read back.
+     * @param segmentBytes        The size at which the active segment is closed and a new one started.
+     * @param indexIntervalBytes  The bytes of log between two index entries.
+     * @param flushIntervalMillis How often appended messages are forced to disk, or {@code 0} to only do it
+     *                            in {@link #sync()}.
+     * @param retentionBytes      The total size above which the oldest segments are deleted.
+     * @param retentionMillis     The age after which a segment is deleted, or {@code 0} for no age limit.
+     * @throws IOException if the directory or its segments cannot be opened.
+     */
+    public MessageLog(Path directory, int chatRoomId, long segmentBytes, int indexIntervalBytes,
+                      long flushIntervalMillis, long retentionBytes, long retentionMillis) throws IOException {
+        if (segmentBytes < 1 || indexIntervalBytes < 1 || flushIntervalMillis < 0) {
+            throw new IllegalArgumentException(
+                    "segmentBytes and indexIntervalBytes must be positive, flushIntervalMillis not negative");
+        }
+        this.directory = directory;
+        this.chatRoomId = chatRoomId;
+        this.segmentBytes = segmentBytes;
+        this.indexIntervalBytes = indexIntervalBytes;
+        this.retentionBytes = retentionBytes;
+        this.retentionMillis = retentionMillis;
+
+        Files.createDirectories(directory);
+        loadSegments();
+        synchronized (this) {
+            applyRetention();
+        }
+        durableOffset = nextOffset;
+        flushTask = flushIntervalMillis > 0
+                ? FLUSHER.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS)
+                : null;
+    }
+
+    /**
+     * Appends a message to the end of the log. It is readable as soon as this returns, and durable after
+     * the next {@link #sync()}.
+     *
+     * @param message The message to append.
+     * @return The message's offset in the log.
+     * @throws IOException if the log is closed or cannot be written.
+     * @throws IllegalArgumentException if the message is larger than a record may be.
+     */
+    public synchronized long append(Message message) throws IOException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+        long offset = nextOffset;
+        ByteBuffer record = encode(offset, message);
+        if (active.getSize() > 0 && active.getSize() + record.remaining() > segmentBytes) {
+            roll();
+        }
+        active.append(record);
+        nextOffset = offset + 1;
+        return offset;
+    }
+
+    /**
+     * Forces every message appended before this call to disk. Concurrent callers share a single force.
+     *
+     * @throws IOException if the log cannot be forced.
+     */
+    public void sync() throws IOException {
+        long target = nextOffset;
+        synchronized (syncMonitor) {
+            while (durableOffset < target && forcing) {
+                try {
+                    syncMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the message log to sync");
+                }
+            }
+            if (durableOffset >= target) {
+                return; // Another thread's force covered this caller's messages.
+            }
+            forcing = true;
+        }
+
+        // This thread leads: one force covers everything appended so far, including other waiters' messages.
+        long covered;
+        LogSegment segment;
+        synchronized (this) {
+            covered = nextOffset;
+            segment = active;
+        }
+        try {
+            segment.force(); // Earlier segments were forced when they were rolled.
+        } catch (ClosedChannelException e) {
+            // Closed by close() or deleted after a roll, both of which force it first; otherwise it is a failure.
+            if (!closed && segments.containsValue(segment)) {
+                finishSync(covered, false);
+                throw e;
+            }
+        } catch (IOException | RuntimeException e) {
+            finishSync(covered, false);
+            throw e;
+        }
+        finishSync(covered, true);
+    }
+
+    /**
+     * Reads messages in offset order.
+     *
+     * @param fromOffset  The offset of the first message; older offsets start at the oldest retained message.
+     * @param maxMessages The maximum number of messages to return.
+     * @return Up to {@code maxMessages} messages, oldest first.
+     * @throws IOException if the log cannot be read.
+     */
+    public List<Message> read(long fromOffset, int maxMessages) throws IOException {
+        List<Message> messages = new ArrayList<>(Math.min(maxMessages, 1024));
+        long offset = fromOffset;
+        long end = nextOffset;
+        while (messages.size() < maxMessages && offset < end) {
+            Map.Entry<Long, LogSegment> entry = segments.floorEntry(offset);
+            if (entry == null) {
+                entry = segments.firstEntry();
+                if (entry == null) {
+                    break;
+                }
+                offset = entry.getKey();
+            }
+            LogSegment segment = entry.getValue();
+            long[] last = {-1};
+            try {
+                segment.read(offset, maxMessages - messages.size(), (recordOffset, payload) -> {
+                    messages.add(decode(payload));
+                    last[0] = recordOffset;
+                    return true;
+                });
+            } catch (ClosedChannelException e) {
+                if (closed || segments.get(entry.getKey()) == segment) {
+                    throw e;
+                }
+                continue; // Deleted by retention while being read; start again from the oldest segment left.
+            }
+            if (last[0] >= 0) {
+                offset = last[0] + 1;
+            } else {
+                Long next = segments.higherKey(entry.getKey());
+                if (next == null) {
+                    break;
+                }
+                offset = next;
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Reads the newest messages in the log.
+     *
+     * @param maxMessages The maximum number of messages to return.
+     * @return Up to {@code maxMessages} messages, oldest first.
+     * @throws IOException if the log cannot be read.
+     */
+    public List<Message> readLatest(int maxMessages) throws IOException {
+        if (maxMessages <= 0) {
+            return Collections.emptyList();
+        }
+        return read(Math.max(getStartOffset(), nextOffset - maxMessages), maxMessages);
+    }
+
+    /**
+     * @return the offset of the oldest message still retained.
+     */
+    public long getStartOffset() {
+        Map.Entry<Long, LogSegment> first = segments.firstEntry();
+        return first != null ? first.getKey() : nextOffset;
+    }
+
+    /**
+     * @return the offset the next appended message will get.
+     */
+    public long getNextOffset() {
+        return nextOffset;
+    }
+
+    /**
+     * @return the number of segment files in the log.
+     */
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * @return the total size of the segment files, not counting their indexes.
+     */
+    public long getSizeInBytes() {
+        long total = 0;
+        for (LogSegment segment : segments.values()) {
+            total += segment.getSize();
+        }
+        return total;
+    }
+
+    /**
+     * @return the ID of the chat room this log belongs to.
+     */
+    public int getChatRoomId() {
+        return chatRoomId;
+    }
+
+    /**
+     * Forces the log to disk and closes its files. Later appends fail; closing twice has no effect.
+     *
+     * @throws IOException if the log could not be forced or closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        try {
+            active.forceAll();
+        } finally {
+            closed = true;
+            IOException failure = null;
+            for (LogSegment segment : segments.values()) {
+                try {
+                    segment.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            synchronized (syncMonitor) {
+                durableOffset = Math.max(durableOffset, nextOffset);
+                syncMonitor.notifyAll();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MessageLog{directory=" + directory + ", startOffset=" + getStartOffset() + ", nextOffset="
+                + nextOffset + ", segments=" + segments.size() + "}";
+    }
+
+    private void finishSync(long covered, boolean succeeded) {
+        synchronized (syncMonitor) {
+            if (succeeded) {
+                durableOffset = Math.max(durableOffset, covered);
+            }
+            forcing = false;
+            syncMonitor.notifyAll();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            if (!closed && durableOffset() < nextOffset) {
+                sync();
+            }
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private long durableOffset() {
+        synchronized (syncMonitor) {
+            return durableOffset;
+        }
+    }
+
+    private void loadSegments() throws IOException {
+        List<Long> baseOffsets = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (SEGMENT_FILE.matcher(name).matches()) {
+                    baseOffsets.add(Long.parseLong(name.substring(0, 20)));
+                }
+            }
+        }
+        Collections.sort(baseOffsets);
+        try {
+            for (long baseOffset : baseOffsets) {
+                LogSegment segment = LogSegment.open(directory, baseOffset, indexIntervalBytes, MAX_RECORD_BYTES);
+                segments.put(baseOffset, segment);
+                active = segment;
+            }
+            if (active == null) {
+                active = LogSegment.create(directory, 0, indexIntervalBytes, MAX_RECORD_BYTES);
+                segments.put(0L, active);
+            }
+        } catch (IOException | RuntimeException e) {
+            for (LogSegment segment : segments.values()) {
+                segment.close();
+            }
+            throw e;
+        }
+        nextOffset = active.getNextOffset();
+    }
+
+    /**
+     * Closes the active segment and starts a new one at the next offset. Called with the lock held.
+     */
+    private void roll() throws IOException {
+        active.forceAll();
+        LogSegment next = LogSegment.create(directory, nextOffset, indexIntervalBytes, MAX_RECORD_BYTES);
+        segments.put(nextOffset, next);
+        active = next;
+        applyRetention();
+    }
+
+    /**
+     * Deletes the oldest segments, never the active one, while the log is over its size or age limit.
+     * Called with the lock held.
+     */
+    private void applyRetention() throws IOException {
+        long total = getSizeInBytes();
+        long cutoff = retentionMillis > 0 ? System.currentTimeMillis() - retentionMillis : Long.MIN_VALUE;
+        while (segments.size() > 1) {
+            Map.Entry<Long, LogSegment> oldest = segments.firstEntry();
+            LogSegment segment = oldest.getValue();
+            if (total <= retentionBytes && segment.lastModifiedMillis() >= cutoff) {
+                break;
+            }
+            segments.remove(oldest.getKey());
+            total -= segment.getSize();
+            segment.delete();
+        }
+    }
+
+    /**
+     * Encodes a record into the reused buffer. Called with the lock held.
+     */
+    private ByteBuffer encode(long offset, Message message) {
+        byte[] name = message.getSenderName() != null
+                ? message.getSenderName().getBytes(StandardCharsets.UTF_8) : null;
+        byte[] body = message.getBody() != null ? message.getBody().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int payloadLength = FIXED_PAYLOAD_BYTES + (name != null ? name.length : 0) + body.length;
+        if (payloadLength > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Message too large for the log: " + payloadLength + " bytes");
+        }
+        int recordLength = LogSegment.HEADER_BYTES + payloadLength;
+        if (recordBuffer.capacity() < recordLength) {
+            recordBuffer = ByteBuffer.allocate(Math.max(recordLength, recordBuffer.capacity() * 2));
+        }
+        ByteBuffer record = recordBuffer.clear();
+        record.position(LogSegment.HEADER_BYTES);
+        record.putLong(offset)
+                .putLong(message.getMessageId())
+                .putLong(message.getTimestamp())
+                .putInt(message.getSenderId())
+                .putInt(name != null ? name.length : -1);
+        if (name != null) {
+            record.put(name);
+        }
+        record.put(body);
+        crc.reset();
+        crc.update(record.array(), LogSegment.HEADER_BYTES, payloadLength);
+        record.putInt(0, payloadLength).putInt(4, (int) crc.getValue());
+        return record.flip();
+    }
+
+    private Message decode(ByteBuffer payload) {
+        long messageId = payload.getLong();
+        long timestamp = payload.getLong();
+        int senderId = payload.getInt();
+        int nameLength = payload.getInt();
+        String senderName = null;
+        if (nameLength >= 0) {
+            senderName = new String(payload.array(), payload.arrayOffset() + payload.position(), nameLength,
+                    StandardCharsets.UTF_8);
+            payload.position(payload.position() + nameLength);
+        }
+        String body = new String(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining(),
+                StandardCharsets.UTF_8);
+        return new Message(messageId, chatRoomId, senderId, senderName, timestamp, body);
+    }
+}
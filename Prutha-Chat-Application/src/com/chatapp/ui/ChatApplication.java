@@ -3,6 +3,7 @@ package com.chatapp.ui;
 
 import com.chatapp.database.DatabaseManager;
 import com.chatapp.models.ChatRoom;
+import com.chatapp.models.Message;
 import com.chatapp.models.RegisterUser;
 import com.chatapp.services.ChatRoomManager;
 import com.chatapp.services.UserManager;
@@ -240,7 +241,13 @@ public class ChatApplication {
         System.out.print("Enter password : ");
         String password = scanner.nextLine();
         System.out.println();
-        RegisterUser user = userManager.login(username, password);
+        RegisterUser user;
+        try {
+            user = userManager.login(username, password);
+        } catch (IllegalStateException e) {
+            System.out.println(ANSI_RED + e.getMessage() + ANSI_RESET); // Throttled after too many failures
+            return;
+        }
         if (user != null) {
             System.out.println(ANSI_GREEN + "Login successful. Welcome, " + user.getName() + "!" + ANSI_RESET);
         } else {
@@ -260,8 +267,8 @@ public class ChatApplication {
             Scanner scanner = new Scanner(System.in);
             RegisterUser currentUser = userManager.getCurrentUser();
 
-            // Fetch existing chat rooms from the database using the ChatRoomManager
-            List<ChatRoom> existingChatRooms = databaseManager.fetchChatRooms();
+            // Existing chat rooms come from the ChatRoomManager's registry, loaded from the database once
+            List<ChatRoom> existingChatRooms = chatRoomManager.getChatRooms();
             String title = ANSI_YELLOW + "------------------------" + ANSI_GREEN + "EXISTING CHATROOMS" + ANSI_RESET + ANSI_YELLOW + "-------------------------" + ANSI_RESET;
             int width = 130;
             String centeredTitle = String.format("%" + width + "s", title);
@@ -281,25 +288,17 @@ public class ChatApplication {
                 System.out.print("Enter new chat room name : ");
                 String roomName = scanner.nextLine();
 
-                ChatRoom selectedChatRoom = new ChatRoom(chatRoomManager.generateChatRoomId());
-                selectedChatRoom.setRoomName(roomName);
-
-                // Create the chat room and get its ID
-                int createdChatRoomId = databaseManager.createChatRoom(selectedChatRoom, currentUser.getUserId());
+                // Create the chat room and register it with the ChatRoomManager; this also stores the creator as a member
+                ChatRoom selectedChatRoom = chatRoomManager.createChatRoom(roomName, currentUser);
 
-                if (createdChatRoomId != -1) {
-                    selectedChatRoom = databaseManager.getChatRoomById(createdChatRoomId);
-                    selectedChatRoom.addParticipant(currentUser);
+                if (selectedChatRoom != null) {
                     chatRoomManager.setCurrentChatRoom(selectedChatRoom);
                     System.out.println(ANSI_GREEN + "Chat room '" + ANSI_YELLOW + roomName + ANSI_RESET + ANSI_GREEN + "' created successfully!" + ANSI_RESET);
-
-                    // Insert a record into UserChatRoom to associate the user with the chat room
-                    databaseManager.insertUserToChatRoom(currentUser.getUserId(), createdChatRoomId);
                 } else {
                     System.out.println(ANSI_RED + "Failed to create the chat room!!!" + ANSI_RESET);
                 }
             } else {
-                ChatRoom selectedChatRoom = databaseManager.getChatRoomById(chatRoomId);
+                ChatRoom selectedChatRoom = chatRoomManager.getChatRoomById(chatRoomId);
 
                 if (selectedChatRoom != null) {
                     selectedChatRoom.addParticipant(currentUser);
@@ -337,12 +336,12 @@ public class ChatApplication {
             RegisterUser receiver = userManager.getUserByUsername(receiverUsername);
 
             if (sender != null && receiver != null) {
-                List<ChatRoom> chatRooms = databaseManager.fetchChatRooms();
+                List<ChatRoom> chatRooms = chatRoomManager.getChatRooms();
                 if (!chatRooms.isEmpty()) {
                     ChatRoom selectedChatRoom = chatRoomManager.getCurrentChatRoom();
 
                     if (selectedChatRoom != null) {
-                        String encrypt = selectedChatRoom.sendMessage(sender, message);
+                        String encrypt = chatRoomManager.sendMessage(selectedChatRoom, sender, message);
                         selectedChatRoom.receiveMessage(receiver, encrypt);
                         System.out.println();
                         System.out.println(ANSI_GREEN + "Message sent by " + ANSI_YELLOW + senderUsername + ANSI_GREEN + " and received by " + ANSI_YELLOW + receiverUsername + ANSI_GREEN + " successfully in chat room " + ANSI_YELLOW + selectedChatRoom.getRoomName() + ANSI_GREEN + " !");
@@ -416,7 +415,7 @@ public class ChatApplication {
         System.out.println();
         ChatRoom chatRoom = chatRoomManager.getCurrentChatRoom();
         if (chatRoom != null) {
-            for (String message : chatRoom.getChatHistory()) {
+            for (Message message : chatRoom.getChatHistory()) {
                 System.out.println(message);
             }
         } else {
@@ -494,6 +493,7 @@ public class ChatApplication {
     void exitApplication() {
         System.out.println(ANSI_GREEN + "THANK YOU FOR USING OUR CHAT APPLICATION!!!" + ANSI_RESET);
         System.out.println();
+        chatRoomManager.closeMessageLogs();
         System.exit(0);
     }
 }
@@ -4,6 +4,7 @@ import javafx.animation.FadeTransition;
 import javafx.animation.ScaleTransition;
 import javafx.animation.TranslateTransition;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.HPos;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -24,6 +25,7 @@ import javafx.scene.layout.ColumnConstraints;
 import javafx.scene.layout.CornerRadii;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
@@ -37,9 +39,13 @@ import javafx.util.Duration;
 import java.io.File;
 import java.io.InputStream;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletionException;
 import com.chatapp.database.DatabaseManager;
 import com.chatapp.models.ChatRoom;
+import com.chatapp.models.Message;
 import com.chatapp.models.RegisterUser;
+import com.chatapp.services.AsyncChatService;
 import com.chatapp.services.ChatRoomManager;
 import com.chatapp.services.UserManager;
 
@@ -47,21 +53,25 @@ public class ChatApplicationGUI extends Application {
     private final DatabaseManager databaseManager = new DatabaseManager();
     private final UserManager userManager = new UserManager(databaseManager);
     private final ChatRoomManager chatRoomManager = new ChatRoomManager();
+    // Every database call from an event handler goes through this service, off the FX thread.
+    private final AsyncChatService chatService = new AsyncChatService(userManager, chatRoomManager);
+    private final FxStallDetector stallDetector = new FxStallDetector();
     private Stage primaryStage;
-    RegisterUser senderUser;
-    RegisterUser receiverUser;
 
     @Override
     public void start(Stage primaryStage) {
         this.primaryStage = primaryStage;
         primaryStage.setFullScreen(true);
         primaryStage.setFullScreenExitHint("");
+        stallDetector.start();
 
         showWelcomePage();
 
         // Add shutdown hook to log out the current user on program exit
         // Add shutdown hook to log out all logged-in users on program exit
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            chatService.shutdown();
+            chatRoomManager.closeMessageLogs();
             userManager.logoutAllUsersOnExit();
         }));
 
@@ -300,9 +310,16 @@ public class ChatApplicationGUI extends Application {
 
             if (!name.isEmpty() && !username.isEmpty() && !password.isEmpty()) {
                 if (isValidPassword(password)) {
-                    userManager.registerUser(name, username, password);
-                    showAlert(Alert.AlertType.INFORMATION, "Registration", "User registered successfully!");
-                    showMainMenu(); // Go back to the main menu after registration
+                    registerButton.setDisable(true);
+                    chatService.registerUser(name, username, password).whenCompleteAsync((ignored, error) -> {
+                        registerButton.setDisable(false);
+                        if (error != null) {
+                            showError("Registration", error);
+                            return;
+                        }
+                        showAlert(Alert.AlertType.INFORMATION, "Registration", "User registered successfully!");
+                        showMainMenu(); // Go back to the main menu after registration
+                    }, Platform::runLater);
                 } else {
                     showAlert(Alert.AlertType.ERROR, "Registration",
                             "Password must be at least 8 characters long and contain at least one digit, one uppercase letter, and one special character.");
@@ -401,14 +418,19 @@ public class ChatApplicationGUI extends Application {
             String username = usernameField.getText().trim();
             String password = passwordField.getText().trim();
 
-            RegisterUser user = userManager.login(username, password);
-            if (user != null) {
-                showAlert(Alert.AlertType.INFORMATION, "Login", "Login successful. Welcome, " + user.getName() + "!");
-                showMainMenu(); // Go back to the main menu after registration
-                // Perform actions after successful login (if needed)
-            } else {
-                showAlert(Alert.AlertType.ERROR, "Login", "Login failed. Please check your username and password!!!");
-            }
+            loginButton.setDisable(true);
+            chatService.login(username, password).whenCompleteAsync((user, error) -> {
+                loginButton.setDisable(false);
+                if (error != null) {
+                    showError("Login", error);
+                } else if (user != null) {
+                    showAlert(Alert.AlertType.INFORMATION, "Login", "Login successful. Welcome, " + user.getName() + "!");
+                    showMainMenu(); // Go back to the main menu after registration
+                    // Perform actions after successful login (if needed)
+                } else {
+                    showAlert(Alert.AlertType.ERROR, "Login", "Login failed. Please check your username and password!!!");
+                }
+            }, Platform::runLater);
         });
         Button backButton = new Button("Back");
         // Styling the back button
@@ -698,8 +720,6 @@ public class ChatApplicationGUI extends Application {
     private void createChatRoom() {
         RegisterUser currentUser = userManager.getCurrentUser();
         if (currentUser != null) {
-            List<ChatRoom> existingChatRooms = databaseManager.fetchChatRooms();
-
             // Main title
             Label mainTitleLabel = new Label("Create or Join Chat Room");
 
@@ -709,9 +729,17 @@ public class ChatApplicationGUI extends Application {
 
             // Combo box for existing chat rooms
             ComboBox<String> chatRoomsComboBox = new ComboBox<>();
-            for (ChatRoom chatRoom : existingChatRooms) {
-                chatRoomsComboBox.getItems().add(chatRoom.getRoomName());
-            }
+            chatRoomsComboBox.setPromptText("Loading chat rooms...");
+            chatService.getChatRooms().whenCompleteAsync((existingChatRooms, error) -> {
+                if (error != null) {
+                    showError("Chat room", error);
+                    return;
+                }
+                chatRoomsComboBox.setPromptText(null);
+                for (ChatRoom chatRoom : existingChatRooms) {
+                    chatRoomsComboBox.getItems().add(chatRoom.getRoomName());
+                }
+            }, Platform::runLater);
 
             chatRoomsComboBox.setStyle("-fx-background-color: white; " +
                     "-fx-border-color: gray; " +
@@ -728,16 +756,18 @@ public class ChatApplicationGUI extends Application {
             joinButton.setOnAction(event -> {
                 String selectedRoom = chatRoomsComboBox.getValue();
                 if (selectedRoom != null && !selectedRoom.isEmpty()) {
-                    ChatRoom selectedChatRoom = databaseManager.getChatRoomByName(selectedRoom);
-                    if (selectedChatRoom != null) {
-                        selectedChatRoom.setRoomName(selectedRoom);
-                        selectedChatRoom.addParticipant(currentUser);
-                        chatRoomManager.setCurrentChatRoom(selectedChatRoom);
-                        showAlert(Alert.AlertType.INFORMATION, "Login", "Joined chat room: " + selectedRoom);
-                        showMainMenu();
-                    } else {
-                        showAlert(Alert.AlertType.ERROR, "Chat room", "Failed to join chat room: " + selectedRoom);
-                    }
+                    joinButton.setDisable(true);
+                    chatService.joinChatRoom(selectedRoom, currentUser).whenCompleteAsync((selectedChatRoom, error) -> {
+                        joinButton.setDisable(false);
+                        if (error != null) {
+                            showError("Chat room", error);
+                        } else if (selectedChatRoom != null) {
+                            showAlert(Alert.AlertType.INFORMATION, "Login", "Joined chat room: " + selectedRoom);
+                            showMainMenu();
+                        } else {
+                            showAlert(Alert.AlertType.ERROR, "Chat room", "Failed to join chat room: " + selectedRoom);
+                        }
+                    }, Platform::runLater);
                 } else {
                     showAlert(Alert.AlertType.ERROR, "Chat room", "Please select a chat room to join!");
                 }
@@ -769,14 +799,19 @@ public class ChatApplicationGUI extends Application {
             createButton.setOnAction(event -> {
                 String newRoomName = newChatRoomField.getText().trim();
                 if (!newRoomName.isEmpty()) {
-                    ChatRoom newChatRoom = new ChatRoom(chatRoomManager.generateChatRoomId());
-                    newChatRoom.setRoomName(newRoomName);
-                    newChatRoom.addParticipant(currentUser);
-                    databaseManager.createChatRoom(newChatRoom, currentUser.getUserId());
-                    chatRoomManager.setCurrentChatRoom(newChatRoom);
-                    showAlert(Alert.AlertType.INFORMATION, "Chat room",
-                            "Chat room '" + newRoomName + "' created and joined successfully");
-                    showMainMenu();
+                    createButton.setDisable(true);
+                    chatService.createChatRoom(newRoomName, currentUser).whenCompleteAsync((newChatRoom, error) -> {
+                        createButton.setDisable(false);
+                        if (error != null) {
+                            showError("Chat room", error);
+                        } else if (newChatRoom != null) {
+                            showAlert(Alert.AlertType.INFORMATION, "Chat room",
+                                    "Chat room '" + newRoomName + "' created and joined successfully");
+                            showMainMenu();
+                        } else {
+                            showAlert(Alert.AlertType.ERROR, "Chat room", "Failed to create chat room: " + newRoomName);
+                        }
+                    }, Platform::runLater);
                 } else {
                     showAlert(Alert.AlertType.ERROR, "Chat room", "Please enter a valid chat room name!");
                 }
@@ -1068,37 +1103,19 @@ public class ChatApplicationGUI extends Application {
                     String messageContent = messageTextArea.getText().trim(); // Get the message content
 
                     if (!senderUsername.isEmpty() && !receiverUsername.isEmpty() && !messageContent.isEmpty()) {
-                        senderUser = userManager.getUserByUsername(senderUsername);
-                        receiverUser = userManager.getUserByUsername(receiverUsername);
-                        // Check if both sender and receiver are logged in
-                        if (senderUser != null && receiverUser != null) {
-                            if (userManager.isLoggedIn(senderUsername) && userManager.isLoggedIn(receiverUsername)) {
-
-                                // Proceed with sending the message
-                                List<ChatRoom> chatRooms = databaseManager.fetchChatRooms();
-                                if (!chatRooms.isEmpty()) {
-                                    ChatRoom selectedChatRoom = chatRoomManager.getCurrentChatRoom();
-
-                                    if (selectedChatRoom != null) {
-                                        String encrypt = selectedChatRoom.sendMessage(senderUser, messageContent);
-                                        selectedChatRoom.receiveMessage(receiverUser, encrypt);
-                                        showAlert(Alert.AlertType.INFORMATION, "Message Sent", "Message sent by "
-                                                + senderUsername + " and received by " + receiverUsername
-                                                + " successfully!");
-                                        showMainMenu(); // Go back to the main menu after sending the message
-                                    } else {
-                                        showAlert(Alert.AlertType.ERROR, "Error",
-                                                "No chat room selected. Please create or join a chat room first.");
+                        sendButton.setDisable(true);
+                        chatService.sendMessage(senderUsername, receiverUsername, messageContent)
+                                .whenCompleteAsync((sent, error) -> {
+                                    sendButton.setDisable(false);
+                                    if (error != null) {
+                                        showError("Error", error);
+                                        return;
                                     }
-                                } else {
-                                    showAlert(Alert.AlertType.ERROR, "Error", "No chat rooms available.");
-                                }
-                            } else {
-                                showAlert(Alert.AlertType.ERROR, "Error", "One or both users are not logged in.");
-                            }
-                        } else {
-                            showAlert(Alert.AlertType.ERROR, "Error", "Invalid sender or receiver username.");
-                        }
+                                    showAlert(Alert.AlertType.INFORMATION, "Message Sent", "Message sent by "
+                                            + senderUsername + " and received by " + receiverUsername
+                                            + " successfully!");
+                                    showMainMenu(); // Go back to the main menu after sending the message
+                                }, Platform::runLater);
                     } else {
                         showAlert(Alert.AlertType.ERROR, "Error",
                                 "Please enter sender's username, receiver's username, and message.");
@@ -1489,148 +1506,18 @@ public class ChatApplicationGUI extends Application {
             if (currentChatRoom != null) {
                 String roomName = chatRoomManager.getCurrentChatRoom().getRoomName();
                 if (roomName != null && !roomName.isEmpty()) {
-                    List<String> chatHistory = currentChatRoom.getChatHistory();
-                    if (!chatHistory.isEmpty()) {
-
-                        GridPane chatGridPane = new GridPane();
-                        // Remove padding from the GridPane
-                        chatGridPane.setPadding(new Insets(20, 20, 20, 20));
-                        chatGridPane.setAlignment(Pos.CENTER);
-                        chatGridPane.setVgap(60); // Set vertical gap between elements
-                        chatGridPane.setHgap(30);
-                        chatGridPane.setPrefWidth(500);
-                        chatGridPane.setGridLinesVisible(false);
-
-                        Label titleLabel = new Label("Chat History: " + roomName);
-                        titleLabel.setStyle(
-                                "-fx-font-size: 45px; -fx-font-weight: bolder; -fx-text-fill: #B98371;-fx-font-family:'Monospace'");
-                        chatGridPane.add(titleLabel, 0, 0, 2, 1);
-
-                        int row = 1; // Start adding messages from the second row
-                        for (String message : chatHistory) {
-                            String[] parts = message.split("\\|", 3);
-
-                            if (parts.length == 3) {
-                                String timestamp = parts[0];
-                                String sender = parts[1];
-                                String content = parts[2];
-
-                                Label messageLabel = new Label(content);
-                                messageLabel.setWrapText(true); // Enable text wrapping
-                                messageLabel.setStyle(
-                                        "-fx-padding: 8px 12px; -fx-background-color: #DCF8C6; -fx-background-radius: 20; -fx-font-size:18px");
-
-                                Label sLabel = new Label(sender);
-                                sLabel.setWrapText(true);
-                                sLabel.setStyle(
-                                        "-fx-font-size: 10px; -fx-text-fill:#6EA5BD;-fx-font-weight: bolder; -fx-background-color: #EED6D3; -fx-background-radius: 5; -fx-padding: 5px 10px");
-                                Label rLabel = new Label(receiverUser.getName());
-                                rLabel.setWrapText(true);
-                                rLabel.setStyle(
-                                        "-fx-font-size: 10px; -fx-text-fill:#B98371; -fx-font-weight: bolder;-fx-background-color: #E7F2F8; -fx-background-radius: 5; -fx-padding: 5px 10px");
-
-                                HBox messageBox = new HBox(10); // Set spacing between nodes in the HBox
-                                if (sender.equals(senderUser.getName())) {
-                                    messageLabel.setAlignment(Pos.CENTER_LEFT);
-                                    messageBox.setAlignment(Pos.CENTER_LEFT);
-                                    messageBox.getChildren().addAll(createCircle(Color.GREEN), sLabel,
-                                            messageLabel);
-                                } else if (sender.equals(receiverUser.getName())) {
-                                    messageLabel.setAlignment(Pos.CENTER_RIGHT);
-                                    messageBox.setAlignment(Pos.CENTER_RIGHT);
-                                    messageBox.getChildren().addAll(messageLabel, rLabel,
-                                            createCircle(Color.GREEN));
-                                }
-
-                                Label timestampLabel = new Label(timestamp);
-                                timestampLabel.setStyle(
-                                        "-fx-font-size: 18px; -fx-text-fill: #84848A;-fx-background-color: #E2E2E2; -fx-background-radius: 10; -fx-padding: 5px 10px");
-
-                                GridPane timestampMessagePane = new GridPane();
-                                timestampMessagePane.setAlignment(Pos.TOP_CENTER);
-                                timestampMessagePane.setHgap(40);
-                                timestampMessagePane.setVgap(50);
-
-                                VBox messageWithTime = new VBox(20);
-                                messageWithTime.setAlignment(Pos.CENTER);
-                                messageWithTime.setStyle(
-                                        "-fx-padding: 10px;");
-                                messageWithTime.setPrefWidth(500);
-                                messageWithTime.setMinHeight(80);
-
-                                messageWithTime.getChildren().addAll(timestampLabel, messageBox);
-
-                                timestampMessagePane.getChildren().add(messageWithTime);
-
-                                chatGridPane.add(timestampMessagePane, 0, row);
-                                row++;
-
-                            }
-                        }
-                        Button backButton = new Button("Back");
-                        // Styling the back button
-                        backButton.setStyle(
-                                "-fx-font-size: 16px; -fx-font-weight: bold; -fx-background-color: #A229EA; -fx-padding: 5px 10px; -fx-text-fill: white; -fx-border-radius: 5px;");
-
-                        // Add event handler to the back button
-                        backButton.setOnAction(event -> {
-                            primaryStage.close(); // Close the current window
-                            showMainMenu(); // Open the main menu window
-                        });
-                        addHoverAnimation(backButton);
-                        chatGridPane.add(backButton, 0, row + 1);
-                        StackPane stackPane = new StackPane();
-
-                        // Set the background image
-                        try {
-                            // Load the image from resources
-                            InputStream inputStream = getClass().getResourceAsStream(
-                                    "blue-pink-text-meagre-box-chatting-box-white-background-by-3d-render.jpg");
-                            Image image = new Image(inputStream);
-
-                            // Create the background image
-                            BackgroundImage backgroundImage = new BackgroundImage(
-                                    image,
-                                    BackgroundRepeat.NO_REPEAT,
-                                    BackgroundRepeat.NO_REPEAT,
-                                    BackgroundPosition.CENTER,
-                                    new BackgroundSize(BackgroundSize.AUTO, BackgroundSize.AUTO, false, false, true,
-                                            true));
-
-                            // Apply background image to the layout
-                            stackPane.setBackground(new Background(backgroundImage));
-                            // Apply a blur effect to the StackPane
-                        } catch (NullPointerException e) {
-                            System.out.println("Image file not found!");
-                            e.printStackTrace();
+                    // Rows are virtualized: only the messages on screen get nodes, and older pages are
+                    // loaded from the database as the user scrolls up.
+                    ChatHistoryView historyView = new ChatHistoryView(chatService, currentChatRoom,
+                            message -> Objects.equals(message.getSenderName(), currentUser.getName()));
+                    historyView.loadLatest().thenAccept(hasMessages -> {
+                        if (hasMessages) {
+                            showChatHistory(roomName, historyView);
+                        } else {
+                            historyView.close();
+                            showAlert(Alert.AlertType.ERROR, "Chat History", "No Chat history!!");
                         }
-
-                        // Add the chat GridPane to the StackPane
-                        stackPane.getChildren().add(chatGridPane);
-
-                        // Create the ScrollPane and add the StackPane to it
-                        ScrollPane scrollPane = new ScrollPane(stackPane);
-                        scrollPane.setFitToWidth(true);
-                        scrollPane.setFitToHeight(true); // Add this line to make the ScrollPane fit the height as well
-
-                        // Create a new Group and add the ScrollPane to it
-                        // Group root = new Group(scrollPane);
-
-                        // Create the Scene using the Group
-                        Scene scene = new Scene(scrollPane, 800, 600);
-
-                        // Set the scene to the primaryStage
-                        primaryStage.setScene(scene);
-
-                        primaryStage.setTitle("Chat History - " + roomName);
-                        primaryStage.setFullScreen(true);
-                        primaryStage.setFullScreenExitHint("");
-                        // primaryStage.show();
-
-                    } else {
-
-                        showAlert(Alert.AlertType.ERROR, "Chat History", "No Chat history!!");
-                    }
+                    });
                 } else {
                     showAlert(Alert.AlertType.ERROR, "Chat History", "Chat room name is not available.");
                 }
@@ -1642,6 +1529,69 @@ public class ChatApplicationGUI extends Application {
         }
     }
 
+    // Builds the history scene around a view that already holds the newest messages.
+    private void showChatHistory(String roomName, ChatHistoryView historyView) {
+        Label titleLabel = new Label("Chat History: " + roomName);
+        titleLabel.setStyle(
+                "-fx-font-size: 45px; -fx-font-weight: bolder; -fx-text-fill: #B98371;-fx-font-family:'Monospace'");
+
+        ListView<Message> historyList = historyView.getListView();
+        historyList.setMaxWidth(900);
+        VBox.setVgrow(historyList, Priority.ALWAYS);
+
+        Button backButton = new Button("Back");
+        // Styling the back button
+        backButton.setStyle(
+                "-fx-font-size: 16px; -fx-font-weight: bold; -fx-background-color: #A229EA; -fx-padding: 5px 10px; -fx-text-fill: white; -fx-border-radius: 5px;");
+
+        // Add event handler to the back button
+        backButton.setOnAction(event -> {
+            historyView.close(); // Stop following new messages
+            primaryStage.close(); // Close the current window
+            showMainMenu(); // Open the main menu window
+        });
+        addHoverAnimation(backButton);
+
+        VBox chatBox = new VBox(20, titleLabel, historyList, backButton);
+        chatBox.setPadding(new Insets(20, 20, 20, 20));
+        chatBox.setAlignment(Pos.TOP_CENTER);
+        StackPane stackPane = new StackPane();
+
+        // Set the background image
+        try {
+            // Load the image from resources
+            InputStream inputStream = getClass().getResourceAsStream(
+                    "blue-pink-text-meagre-box-chatting-box-white-background-by-3d-render.jpg");
+            Image image = new Image(inputStream);
+
+            // Create the background image
+            BackgroundImage backgroundImage = new BackgroundImage(
+                    image,
+                    BackgroundRepeat.NO_REPEAT,
+                    BackgroundRepeat.NO_REPEAT,
+                    BackgroundPosition.CENTER,
+                    new BackgroundSize(BackgroundSize.AUTO, BackgroundSize.AUTO, false, false, true,
+                            true));
+
+            // Apply background image to the layout
+            stackPane.setBackground(new Background(backgroundImage));
+        } catch (NullPointerException e) {
+            System.out.println("Image file not found!");
+            e.printStackTrace();
+        }
+
+        stackPane.getChildren().add(chatBox);
+
+        // The ListView scrolls itself, so no ScrollPane is needed around it.
+        Scene scene = new Scene(stackPane, 800, 600);
+
+        // Set the scene to the primaryStage
+        primaryStage.setScene(scene);
+        primaryStage.setTitle("Chat History - " + roomName);
+        primaryStage.setFullScreen(true);
+        primaryStage.setFullScreenExitHint("");
+    }
+
     private Circle createCircle(Color color) {
         Circle circle = new Circle(5);
         circle.setFill(color);
@@ -1672,6 +1622,15 @@ public class ChatApplicationGUI extends Application {
         alert.showAndWait();
     }
 
+    // Shows the message of a failed background operation; validation failures carry a user-facing message.
+    private void showError(String title, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (!(cause instanceof IllegalArgumentException || cause instanceof IllegalStateException)) {
+            cause.printStackTrace();
+        }
+        showAlert(Alert.AlertType.ERROR, title, cause.getMessage() != null ? cause.getMessage() : cause.toString());
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
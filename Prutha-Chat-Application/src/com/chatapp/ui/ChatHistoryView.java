@@ -0,0 +1,241 @@
+package com.chatapp.ui;
+
+import com.chatapp.models.ChatRoom;
+import com.chatapp.models.Message;
+import com.chatapp.models.MessageListener;
+import com.chatapp.models.MessagePage;
+import com.chatapp.services.AsyncChatService;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.control.ListView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+/**
+ * Virtualized view of a chat room's history, built on a {@link ListView}.
+ * <p>
+ * Only the rows on screen have nodes; they are {@link MessageListCell}s reused as the user scrolls, so
+ * memory and layout cost follow the window size rather than the number of messages. The view opens on
+ * the room's in-memory history, or on the newest stored page if nothing is in memory, and pages older
+ * messages in from the database each time the first row comes into view. The cursor is always the ID of
+ * the oldest stored message on screen, passed to {@link AsyncChatService#getMessagesBefore}. Messages
+ * created in memory get their ID once the message writer has stored them, so if none on screen has one
+ * yet the view first waits for {@link AsyncChatService#flushMessages()}; copies that are never stored,
+ * such as a receiver's decrypted copy, are skipped. Pages are fetched on the {@link AsyncChatService} executor and added to the list on the FX thread, so
+ * scrolling never waits for the database. The page size comes from the {@code chatapp.gui.history.pageSize}
+ * system property.
+ * </p>
+ * <p>
+ * While open, the view subscribes to the room's message stream. New messages are queued by whichever
+ * thread posted them; the message that finds the queue empty schedules one drain on the FX thread, which
+ * appends everything queued by then in one list change. A burst of messages costs one layout pass rather
+ * than one per message, and an idle room costs nothing. Call {@link #close()} when the view is left to
+ * unsubscribe.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+class ChatHistoryView {
+    private static final int PAGE_SIZE = Integer.getInteger("chatapp.gui.history.pageSize", 50);
+
+    private final AsyncChatService chatService;
+    private final ChatRoom chatRoom;
+    private final ObservableList<Message> messages = FXCollections.observableArrayList();
+    private final ListView<Message> listView = new ListView<>(messages);
+
+    private boolean hasMore;
+    private boolean loading;
+
+    // Messages pushed by the room since the last drain; filled on any thread, drained on the FX thread.
+    private final Queue<Message> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final MessageListener listener = message -> {
+        incoming.add(message);
+        scheduleDrain();
+    };
+    // Set on the FX thread once the first snapshot is shown; queued messages wait until then.
+    private boolean showing;
+    // Messages both in the first snapshot and queued by the listener; skipped once, on the first drain. A
+    // stored page holds other objects than the room pushes, so stored messages are matched by their ID,
+    // and in-memory ones that may not have an ID yet by identity.
+    private Set<Message> alreadyShown = Collections.emptySet();
+    private Set<Long> alreadyShownIds = Collections.emptySet();
+    private boolean followLatest = true;
+
+    /**
+     * @param chatService  The service used to page in stored messages.
+     * @param chatRoom     The chat room whose history is shown.
+     * @param isOwnMessage Decides which messages are shown on the left as the viewer's own.
+     */
+    ChatHistoryView(AsyncChatService chatService, ChatRoom chatRoom, Predicate<Message> isOwnMessage) {
+        this.chatService = chatService;
+        this.chatRoom = chatRoom;
+
+        listView.setStyle("-fx-background-color: transparent; -fx-control-inner-background: transparent;");
+        listView.setFocusTraversable(false);
+        listView.setCellFactory(view -> new MessageListCell(isOwnMessage) {
+            @Override
+            protected void updateItem(Message message, boolean empty) {
+                super.updateItem(message, empty);
+                if (!empty && getIndex() == 0) {
+                    requestOlderMessages();
+                }
+                if (!empty && getIndex() == messages.size() - 1) {
+                    followLatest = true; // The newest row is on screen again, so keep up with new ones.
+                }
+            }
+        });
+    }
+
+    /**
+     * Fills the view with the newest messages and scrolls to the bottom. Completes on the FX thread.
+     *
+     * @return A future completing with {@code false} if the room has no messages at all.
+     */
+    CompletableFuture<Boolean> loadLatest() {
+        // Subscribe before taking the snapshot so no message falls between the two.
+        chatRoom.addMessageListener(listener);
+        List<Message> recent = chatRoom.getChatHistory(PAGE_SIZE);
+        if (!recent.isEmpty()) {
+            showLatest(recent, true);
+            return CompletableFuture.completedFuture(true);
+        }
+        return chatService.getLatestMessages(chatRoom, PAGE_SIZE).handleAsync((page, error) -> {
+            if (error != null) {
+                error.printStackTrace();
+                return false;
+            }
+            showLatest(page.getMessages(), page.hasMore());
+            return !messages.isEmpty();
+        }, Platform::runLater);
+    }
+
+    private void showLatest(List<Message> latest, boolean more) {
+        messages.setAll(latest);
+        hasMore = more;
+        alreadyShown = Collections.newSetFromMap(new IdentityHashMap<>());
+        alreadyShown.addAll(latest);
+        alreadyShownIds = new HashSet<>();
+        for (Message message : latest) {
+            if (message.getMessageId() != Message.UNSAVED_ID) {
+                alreadyShownIds.add(message.getMessageId());
+            }
+        }
+        if (!messages.isEmpty()) {
+            listView.scrollTo(messages.size() - 1);
+        }
+        showing = true;
+        scheduleDrain(); // Anything queued before the snapshot was shown is waiting for a drain.
+    }
+
+    /**
+     * Stops following the room's new messages. Call when the view is no longer shown.
+     */
+    void close() {
+        chatRoom.removeMessageListener(listener);
+        showing = false;
+        incoming.clear();
+    }
+
+    private void scheduleDrain() {
+        if (!incoming.isEmpty() && drainScheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::appendIncoming);
+        }
+    }
+
+    private void appendIncoming() {
+        // Cleared before draining, so a message queued from here on schedules the next drain itself.
+        drainScheduled.set(false);
+        if (!showing || incoming.isEmpty()) {
+            return;
+        }
+        List<Message> batch = new ArrayList<>();
+        for (Message message; (message = incoming.poll()) != null; ) {
+            if (!isAlreadyShown(message)) {
+                batch.add(message);
+            }
+        }
+        alreadyShown = Collections.emptySet();
+        alreadyShownIds = Collections.emptySet();
+        if (batch.isEmpty()) {
+            return;
+        }
+        messages.addAll(batch); // One change event, so one layout pass, for the whole batch.
+        if (followLatest) {
+            listView.scrollTo(messages.size() - 1);
+        }
+    }
+
+    /**
+     * A message posted while the newest page was being fetched can be both on that page and in the queue.
+     * The page is read after the message writer is flushed, so such a message already has its ID.
+     */
+    private boolean isAlreadyShown(Message message) {
+        return alreadyShown.contains(message)
+                || message.getMessageId() != Message.UNSAVED_ID && alreadyShownIds.contains(message.getMessageId());
+    }
+
+    /**
+     * @return the list view to place in a scene.
+     */
+    ListView<Message> getListView() {
+        return listView;
+    }
+
+    private void requestOlderMessages() {
+        if (!hasMore || loading || messages.isEmpty()) {
+            return;
+        }
+        loading = true;
+        followLatest = false; // The user is reading older messages; do not pull them back to the bottom.
+
+        long cursor = oldestStoredMessageId();
+        CompletableFuture<MessagePage> older = cursor != Message.UNSAVED_ID
+                ? chatService.getMessagesBefore(chatRoom, cursor, PAGE_SIZE)
+                // Nothing on screen has its ID yet; once the queued messages are written, look again. If
+                // still none has one, nothing on screen is stored, so the newest stored page is older.
+                : chatService.flushMessages().thenComposeAsync(ignored -> {
+                    long flushedCursor = oldestStoredMessageId();
+                    return chatService.getMessagesBefore(chatRoom,
+                            flushedCursor != Message.UNSAVED_ID ? flushedCursor : MessagePage.LATEST, PAGE_SIZE);
+                }, Platform::runLater);
+        // Applied on the FX thread, after the layout pass that asked for the page has finished.
+        older.whenCompleteAsync((page, error) -> {
+            loading = false;
+            if (error != null) {
+                error.printStackTrace();
+                hasMore = false;
+                return;
+            }
+            hasMore = page.hasMore();
+            if (!page.isEmpty()) {
+                messages.addAll(0, page.getMessages());
+                // Keep the row the user was looking at on top instead of jumping to the new first row.
+                listView.scrollTo(page.getMessages().size());
+            }
+        }, Platform::runLater);
+    }
+
+    /**
+     * @return the ID of the oldest message on screen that has been stored, or {@link Message#UNSAVED_ID}.
+     */
+    private long oldestStoredMessageId() {
+        for (Message message : messages) {
+            if (message.getMessageId() != Message.UNSAVED_ID) {
+                return message.getMessageId();
+            }
+        }
+        return Message.UNSAVED_ID;
+    }
+}
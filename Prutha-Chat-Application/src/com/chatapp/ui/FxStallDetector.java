@@ -0,0 +1,75 @@
+package com.chatapp.ui;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watchdog that reports when the JavaFX application thread is blocked.
+ * <p>
+ * A daemon thread posts a heartbeat to the FX thread every {@code checkIntervalMillis}. If a heartbeat is
+ * still unprocessed after {@code thresholdMillis}, whatever is running on the FX thread (usually an event
+ * handler doing blocking work) has stalled the UI that long; the FX thread's stack is printed once per
+ * stall, so the log shows exactly which handler was responsible, and a second line reports the total
+ * stall time once the thread recovers.
+ * </p>
+ * <p>
+ * The threshold and interval come from the {@code chatapp.gui.stallThresholdMillis} and
+ * {@code chatapp.gui.stallCheckIntervalMillis} system properties.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+class FxStallDetector {
+    private static final long THRESHOLD_MILLIS = Long.getLong("chatapp.gui.stallThresholdMillis", 250);
+    private static final long CHECK_INTERVAL_MILLIS = Long.getLong("chatapp.gui.stallCheckIntervalMillis", 100);
+
+    private final Thread watchdog = new Thread(this::run, "fx-stall-detector");
+    private volatile Thread fxThread;
+    // Time the outstanding heartbeat was posted, or 0 once the FX thread has run it.
+    private volatile long pendingSinceNanos;
+
+    /**
+     * Starts watching. Must be called on the FX application thread.
+     */
+    void start() {
+        fxThread = Thread.currentThread();
+        watchdog.setDaemon(true);
+        watchdog.start();
+    }
+
+    private void run() {
+        long thresholdNanos = TimeUnit.MILLISECONDS.toNanos(THRESHOLD_MILLIS);
+        while (true) {
+            long postedAt = System.nanoTime();
+            pendingSinceNanos = postedAt;
+            Platform.runLater(() -> pendingSinceNanos = 0);
+
+            boolean reported = false;
+            do {
+                try {
+                    Thread.sleep(CHECK_INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (!reported && pendingSinceNanos != 0 && System.nanoTime() - postedAt > thresholdNanos) {
+                    reported = true;
+                    report(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - postedAt));
+                }
+            } while (pendingSinceNanos != 0);
+
+            if (reported) {
+                System.err.println("FX thread resumed after a stall of about "
+                        + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - postedAt) + " ms");
+            }
+        }
+    }
+
+    private void report(long stalledMillis) {
+        StringBuilder trace = new StringBuilder("FX thread blocked for more than " + stalledMillis + " ms:");
+        for (StackTraceElement element : fxThread.getStackTrace()) {
+            trace.append(System.lineSeparator()).append("\tat ").append(element);
+        }
+        System.err.println(trace);
+    }
+}
@@ -0,0 +1,86 @@
+package com.chatapp.ui;
+
+import com.chatapp.models.Message;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Circle;
+
+import java.util.function.Predicate;
+
+/**
+ * List cell that renders one chat message as a timestamp above a sender badge and message bubble.
+ * <p>
+ * The {@code ListView} only creates as many cells as fit on screen and hands them a different message
+ * as the user scrolls, so the nodes are built once in the constructor and {@link #updateItem} just
+ * changes their text and arrangement. Messages from the "own" side sit on the left, all others on
+ * the right.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+class MessageListCell extends ListCell<Message> {
+    private static final String OWN_SENDER_STYLE =
+            "-fx-font-size: 10px; -fx-text-fill:#6EA5BD;-fx-font-weight: bolder; -fx-background-color: #EED6D3; -fx-background-radius: 5; -fx-padding: 5px 10px";
+    private static final String OTHER_SENDER_STYLE =
+            "-fx-font-size: 10px; -fx-text-fill:#B98371; -fx-font-weight: bolder;-fx-background-color: #E7F2F8; -fx-background-radius: 5; -fx-padding: 5px 10px";
+
+    private final Predicate<Message> isOwnMessage;
+    private final Label timestampLabel = new Label();
+    private final Label senderLabel = new Label();
+    private final Label messageLabel = new Label();
+    private final Circle onlineCircle = new Circle(5, Color.GREEN);
+    private final HBox messageBox = new HBox(10);
+    private final VBox messageWithTime = new VBox(20, timestampLabel, messageBox);
+
+    /**
+     * @param isOwnMessage Decides which messages are shown on the left as the viewer's own.
+     */
+    MessageListCell(Predicate<Message> isOwnMessage) {
+        this.isOwnMessage = isOwnMessage;
+
+        timestampLabel.setStyle(
+                "-fx-font-size: 18px; -fx-text-fill: #84848A;-fx-background-color: #E2E2E2; -fx-background-radius: 10; -fx-padding: 5px 10px");
+        senderLabel.setWrapText(true);
+        messageLabel.setWrapText(true);
+        messageLabel.setMaxWidth(500);
+        messageLabel.setStyle(
+                "-fx-padding: 8px 12px; -fx-background-color: #DCF8C6; -fx-background-radius: 20; -fx-font-size:18px");
+
+        messageWithTime.setAlignment(Pos.CENTER);
+        messageWithTime.setStyle("-fx-padding: 10px;");
+        messageWithTime.setMinHeight(80);
+
+        setStyle("-fx-background-color: transparent;");
+    }
+
+    @Override
+    protected void updateItem(Message message, boolean empty) {
+        super.updateItem(message, empty);
+        setText(null);
+        if (empty || message == null) {
+            setGraphic(null);
+            return;
+        }
+
+        timestampLabel.setText(message.getFormattedTimestamp());
+        senderLabel.setText(message.getSenderName());
+        messageLabel.setText(message.getBody());
+
+        if (isOwnMessage.test(message)) {
+            senderLabel.setStyle(OWN_SENDER_STYLE);
+            messageLabel.setAlignment(Pos.CENTER_LEFT);
+            messageBox.setAlignment(Pos.CENTER_LEFT);
+            messageBox.getChildren().setAll(onlineCircle, senderLabel, messageLabel);
+        } else {
+            senderLabel.setStyle(OTHER_SENDER_STYLE);
+            messageLabel.setAlignment(Pos.CENTER_RIGHT);
+            messageBox.setAlignment(Pos.CENTER_RIGHT);
+            messageBox.getChildren().setAll(messageLabel, senderLabel, onlineCircle);
+        }
+        setGraphic(messageWithTime);
+    }
+}
@@ -0,0 +1,181 @@
+package com.chatapp.utils;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * {@link MessageCipher} using authenticated AES-GCM encryption.
+ * <p>
+ * Each message is encrypted under a fresh 12 byte IV and stored as {@code IV || ciphertext || tag}; the
+ * {@code String} methods carry that as Base64 text, so encrypted bodies still fit the message table and
+ * the space-separated text protocol. A tampered or truncated message fails to decrypt instead of turning
+ * into garbage.
+ * </p>
+ * <p>
+ * {@code Cipher.getInstance} is far too slow to call per message, so every thread that uses the cipher
+ * keeps its own {@link Cipher} and output buffer and only re-initializes them with the next IV:
+ * <ul>
+ *     <li>an IV is a random 8 byte prefix, drawn once per thread, followed by a 4 byte counter, so IVs never
+ *     repeat within a thread and only collide across threads or restarts with negligible probability, and</li>
+ *     <li>buffers grow to the largest message a thread has seen, up to 64 KiB; larger messages get a
+ *     buffer of their own.</li>
+ * </ul>
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+public class AesGcmMessageCipher implements MessageCipher {
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int IV_LENGTH = 12;
+    private static final int IV_PREFIX_LENGTH = 8;
+    private static final int TAG_LENGTH = 16;
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final SecretKey key;
+    private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+
+    /**
+     * @param key The raw AES key, 16, 24 or 32 bytes long.
+     * @throws IllegalArgumentException if the key has another length.
+     */
+    public AesGcmMessageCipher(byte[] key) {
+        if (key.length != 16 && key.length != 24 && key.length != 32) {
+            throw new IllegalArgumentException("AES keys are 16, 24 or 32 bytes, not " + key.length);
+        }
+        this.key = new SecretKeySpec(key, "AES");
+    }
+
+    @Override
+    public String encrypt(String plaintext) {
+        ByteBuffer plain = ByteBuffer.wrap(plaintext.getBytes(StandardCharsets.UTF_8));
+        Worker worker = workers.get();
+        ByteBuffer sealed = worker.sealedBuffer(maxEncryptedLength(plain.remaining()));
+        encrypt(plain, sealed);
+        sealed.flip();
+        ByteBuffer encoded = Base64.getEncoder().encode(sealed);
+        return new String(encoded.array(), encoded.arrayOffset() + encoded.position(), encoded.remaining(),
+                StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public String decrypt(String ciphertext) {
+        ByteBuffer sealed = ByteBuffer.wrap(Base64.getDecoder().decode(ciphertext));
+        ByteBuffer plain = workers.get().plainBuffer(sealed.remaining());
+        decrypt(sealed, plain);
+        plain.flip();
+        return new String(plain.array(), plain.arrayOffset(), plain.limit(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int encrypt(ByteBuffer plaintext, ByteBuffer ciphertext) {
+        if (ciphertext.remaining() < maxEncryptedLength(plaintext.remaining())) {
+            throw new BufferOverflowException();
+        }
+        Worker worker = workers.get();
+        int start = ciphertext.position();
+        try {
+            worker.cipher.init(Cipher.ENCRYPT_MODE, key, worker.nextIv());
+            ciphertext.put(worker.iv);
+            worker.cipher.doFinal(plaintext, ciphertext);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES-GCM encryption failed", e);
+        }
+        return ciphertext.position() - start;
+    }
+
+    @Override
+    public int decrypt(ByteBuffer ciphertext, ByteBuffer plaintext) {
+        if (ciphertext.remaining() < IV_LENGTH + TAG_LENGTH) {
+            throw new IllegalArgumentException("Ciphertext too short: " + ciphertext.remaining() + " bytes");
+        }
+        Worker worker = workers.get();
+        int start = plaintext.position();
+        ciphertext.get(worker.peerIv);
+        try {
+            worker.cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, worker.peerIv));
+            worker.cipher.doFinal(ciphertext, plaintext);
+        } catch (AEADBadTagException e) {
+            throw new IllegalArgumentException("Message failed authentication", e);
+        } catch (ShortBufferException e) {
+            throw new BufferOverflowException();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES-GCM decryption failed", e);
+        }
+        return plaintext.position() - start;
+    }
+
+    @Override
+    public int maxEncryptedLength(int plaintextLength) {
+        return IV_LENGTH + plaintextLength + TAG_LENGTH;
+    }
+
+    @Override
+    public String toString() {
+        return "AesGcmMessageCipher{keyBits=" + key.getEncoded().length * 8 + "}";
+    }
+
+    /**
+     * One thread's cipher, IV state and scratch buffers.
+     */
+    private static final class Worker {
+        private final Cipher cipher;
+        private final byte[] iv = new byte[IV_LENGTH];
+        private final byte[] peerIv = new byte[IV_LENGTH];
+        private int counter;
+        private ByteBuffer sealed = ByteBuffer.allocate(512);
+        private ByteBuffer plain = ByteBuffer.allocate(512);
+
+        private Worker() {
+            try {
+                cipher = Cipher.getInstance(TRANSFORMATION);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(TRANSFORMATION + " is not available", e);
+            }
+            RANDOM.nextBytes(iv);
+        }
+
+        private GCMParameterSpec nextIv() {
+            if (++counter == 0) {
+                RANDOM.nextBytes(iv); // Counter wrapped: move to a new prefix rather than repeat an IV.
+            }
+            for (int i = IV_PREFIX_LENGTH; i < IV_LENGTH; i++) {
+                iv[i] = (byte) (counter >>> (8 * (IV_LENGTH - 1 - i)));
+            }
+            return new GCMParameterSpec(TAG_LENGTH * 8, iv);
+        }
+
+        private ByteBuffer sealedBuffer(int capacity) {
+            ByteBuffer buffer = reuse(sealed, capacity);
+            if (buffer.capacity() <= MAX_RETAINED_BUFFER) {
+                sealed = buffer;
+            }
+            return buffer;
+        }
+
+        private ByteBuffer plainBuffer(int capacity) {
+            ByteBuffer buffer = reuse(plain, capacity);
+            if (buffer.capacity() <= MAX_RETAINED_BUFFER) {
+                plain = buffer;
+            }
+            return buffer;
+        }
+
+        private static ByteBuffer reuse(ByteBuffer buffer, int capacity) {
+            if (buffer.capacity() >= capacity) {
+                return buffer.clear();
+            }
+            return ByteBuffer.allocate(Math.max(capacity, Math.min(buffer.capacity() * 2, MAX_RETAINED_BUFFER)));
+        }
+    }
+}
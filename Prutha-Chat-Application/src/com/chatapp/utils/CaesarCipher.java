@@ -1,5 +1,14 @@
 package com.chatapp.utils;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Utility class offering methods for encryption and decryption using the Caesar
  * Cipher technique.
@@ -10,6 +19,21 @@ package com.chatapp.utils;
  * characters, leaving non-alphabetical
  * characters unchanged during the encryption or decryption process.
  * </p>
+ * <p>
+ * Each shift key gets a precomputed table mapping every ASCII char to its shifted form, built once and
+ * shared, so a message is shifted with one array lookup per char into a presized buffer. Besides the
+ * {@code String} methods there are {@code char[]} and UTF-8 {@code byte[]} overloads that write into a
+ * caller-supplied buffer. All of them produce exactly the output of the original letter-by-letter
+ * implementation, including its handling of non-ASCII letters.
+ * </p>
+ * <p>
+ * The {@code byte[]} and {@code ByteBuffer} methods are meant for bulk work such as re-encrypting history
+ * files or pages. When the optional {@code VectorCaesar} kernel from {@code src-vector} has been built and
+ * the JVM is started with {@code --add-modules jdk.incubator.vector}, they shift whole SIMD registers of
+ * ASCII bytes at a time and only fall back to the table for blocks containing non-ASCII bytes. The kernel
+ * is looked up at runtime, so the rest of the code compiles and runs without the incubating module. Set
+ * {@code chatapp.cipher.vector} to {@code false} to always use the table.
+ * </p>
  *
  * @author Prutha Upadhyay
  */
@@ -19,6 +43,19 @@ public class CaesarCipher {
   private static final String ALPHABET_LOWER = "abcdefghijklmnopqrstuvwxyz";
   private static final String ALPHABET_UPPER = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
   // private static final int ALPHABET_SIZE = ALPHABET.length();
+  private static final int ALPHABET_SIZE = 26;
+
+  // Lookup tables cover ASCII; other chars go through the original per-char rule.
+  private static final int ASCII_LIMIT = 128;
+  private static final char UNMAPPED = '\uFFFF';
+  private static final int DROPPED = -1;
+  private static final Map<Integer, char[]> TABLES = new ConcurrentHashMap<>();
+
+  // The byte[] path hands runs of ASCII to VectorCaesar when it was built and the Vector API is available.
+  private static final MethodHandle VECTOR_SHIFT_ASCII = findVectorKernel("shiftAscii", MethodType.methodType(
+      int.class, byte[].class, int.class, int.class, byte[].class, int.class, int.class));
+  private static final boolean VECTORIZED = VECTOR_SHIFT_ASCII != null;
+  private static final int VECTOR_LANES = VECTORIZED ? vectorLanes() : 0;
 
   /**
    * Encrypts the input message using the Caesar Cipher mechanism.
@@ -36,32 +73,7 @@ public class CaesarCipher {
    * @return The encrypted version of the input message.
    */
   public static String encrypt(String message, int shiftKey) {
-    // message = message.toLowerCase(); // Convert the message to lowercase
-
-    StringBuilder encryptedMessage = new StringBuilder();
-
-    for (int i = 0; i < message.length(); i++) {
-      char character = message.charAt(i);
-
-      if (Character.isLetter(character)) {
-        if (Character.isUpperCase(character)) {
-          int position = ALPHABET_UPPER.indexOf(character);
-          int encryptedPosition = (position + shiftKey) % 26;
-          char encryptedCharacter = ALPHABET_UPPER.charAt(encryptedPosition);
-          encryptedMessage.append(encryptedCharacter);
-        } else if (Character.isLowerCase(character)) {
-          int position = ALPHABET_LOWER.indexOf(character);
-          int encryptedPosition = (position + shiftKey) % 26;
-          char encryptedCharacter = ALPHABET_LOWER.charAt(encryptedPosition);
-          encryptedMessage.append(encryptedCharacter);
-        }
-
-      } else {
-        encryptedMessage.append(character); // Keep non-alphabet characters unchanged
-      }
-    }
-
-    return encryptedMessage.toString();
+    return shift(message, shiftKey);
   }
 
   /**
@@ -80,43 +92,298 @@ public class CaesarCipher {
    * @return The plaintext version of the encrypted message.
    */
   public static String decrypt(String encryptedMessage, int shiftKey) {
-    // encryptedMessage = encryptedMessage.toLowerCase(); // Convert the encrypted message to lowercase
-
-    StringBuilder decryptedMessage = new StringBuilder();
-
-    for (int i = 0; i < encryptedMessage.length(); i++) {
-      char character = encryptedMessage.charAt(i);
-      if (Character.isLetter(character)) {
-        if (Character.isUpperCase(character)) {
-          int position = ALPHABET_UPPER.indexOf(character);
-          int decryptedPosition = (position - shiftKey + ALPHABET_UPPER.length()) % ALPHABET_UPPER.length();
-          char decryptedCharacter = ALPHABET_UPPER.charAt(decryptedPosition);
-          decryptedMessage.append(decryptedCharacter);
-        } else if (Character.isLowerCase(character)) {
-          int position = ALPHABET_LOWER.indexOf(character);
-          int decryptedPosition = (position - shiftKey + ALPHABET_LOWER.length()) % ALPHABET_LOWER.length();
-          char decryptedCharacter = ALPHABET_LOWER.charAt(decryptedPosition);
-          decryptedMessage.append(decryptedCharacter);
+    // Shifting back by k is shifting forward by 26 - k; the original formula reduces to exactly this.
+    return shift(encryptedMessage, ALPHABET_SIZE - shiftKey);
+  }
+
+  /**
+   * Encrypts {@code length} chars of {@code src} into {@code dst} without allocating. Produces the same
+   * chars as {@link #encrypt(String, int)}. Letters that are neither upper nor lower case are dropped, as
+   * they always were, so fewer chars than {@code length} may be written. {@code src} and {@code dst} may be
+   * the same array at the same offset.
+   *
+   * @param src       The plaintext.
+   * @param srcOffset The index of the first char to encrypt.
+   * @param length    The number of chars to encrypt.
+   * @param dst       The buffer receiving the ciphertext; needs room for {@code length} chars.
+   * @param dstOffset The index at which to write the first char.
+   * @param shiftKey  The number of positions to shift each letter.
+   * @return The number of chars written.
+   */
+  public static int encrypt(char[] src, int srcOffset, int length, char[] dst, int dstOffset, int shiftKey) {
+    return shift(src, srcOffset, length, dst, dstOffset, shiftKey);
+  }
+
+  /**
+   * Decrypts {@code length} chars of {@code src} into {@code dst} without allocating, like
+   * {@link #encrypt(char[], int, int, char[], int, int)} in reverse.
+   *
+   * @return The number of chars written.
+   */
+  public static int decrypt(char[] src, int srcOffset, int length, char[] dst, int dstOffset, int shiftKey) {
+    return shift(src, srcOffset, length, dst, dstOffset, ALPHABET_SIZE - shiftKey);
+  }
+
+  /**
+   * Encrypts {@code length} bytes of UTF-8 text into {@code dst} without allocating or decoding it into a
+   * {@code String}. For well-formed UTF-8 the output is the UTF-8 encoding of what
+   * {@link #encrypt(String, int)} returns; malformed bytes are copied unchanged. The output is never longer
+   * than the input, and {@code src} and {@code dst} may be the same array at the same offset.
+   *
+   * @param src       The UTF-8 encoded plaintext.
+   * @param srcOffset The index of the first byte to encrypt.
+   * @param length    The number of bytes to encrypt.
+   * @param dst       The buffer receiving the ciphertext; needs room for {@code length} bytes.
+   * @param dstOffset The index at which to write the first byte.
+   * @param shiftKey  The number of positions to shift each letter.
+   * @return The number of bytes written.
+   */
+  public static int encrypt(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset, int shiftKey) {
+    return shift(src, srcOffset, length, dst, dstOffset, shiftKey);
+  }
+
+  /**
+   * Decrypts {@code length} bytes of UTF-8 text into {@code dst} without allocating, like
+   * {@link #encrypt(byte[], int, int, byte[], int, int)} in reverse.
+   *
+   * @return The number of bytes written.
+   */
+  public static int decrypt(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset, int shiftKey) {
+    return shift(src, srcOffset, length, dst, dstOffset, ALPHABET_SIZE - shiftKey);
+  }
+
+  /**
+   * Encrypts the remaining UTF-8 bytes of {@code src} into {@code dst}, like
+   * {@link #encrypt(byte[], int, int, byte[], int, int)}. Both buffers' positions advance past the bytes
+   * read and written. Heap buffers are processed in place; other buffers are copied through a temporary array.
+   *
+   * @param src      The UTF-8 encoded plaintext.
+   * @param dst      The buffer receiving the ciphertext; needs room for {@code src.remaining()} bytes.
+   * @param shiftKey The number of positions to shift each letter.
+   * @return The number of bytes written.
+   * @throws BufferOverflowException if {@code dst} has less room than {@code src} has bytes.
+   */
+  public static int encrypt(ByteBuffer src, ByteBuffer dst, int shiftKey) {
+    return shift(src, dst, shiftKey);
+  }
+
+  /**
+   * Decrypts the remaining UTF-8 bytes of {@code src} into {@code dst}, like
+   * {@link #encrypt(ByteBuffer, ByteBuffer, int)} in reverse.
+   *
+   * @return The number of bytes written.
+   */
+  public static int decrypt(ByteBuffer src, ByteBuffer dst, int shiftKey) {
+    return shift(src, dst, ALPHABET_SIZE - shiftKey);
+  }
+
+  private static String shift(String text, int shift) {
+    int length = text.length();
+    char[] buffer = new char[length];
+    text.getChars(0, length, buffer, 0);
+    int written = shift(buffer, 0, length, buffer, 0, shift);
+    return new String(buffer, 0, written);
+  }
+
+  private static int shift(char[] src, int srcOffset, int length, char[] dst, int dstOffset, int shift) {
+    Objects.checkFromIndexSize(srcOffset, length, src.length);
+    Objects.checkFromIndexSize(dstOffset, length, dst.length);
+    char[] table = table(shift);
+
+    int out = dstOffset;
+    for (int i = srcOffset, end = srcOffset + length; i < end; i++) {
+      char character = src[i];
+      char mapped = character < ASCII_LIMIT ? table[character] : UNMAPPED;
+      if (mapped == UNMAPPED) {
+        int slow = shiftChar(character, shift);
+        if (slow == DROPPED) {
+          continue;
+        }
+        mapped = (char) slow;
+      }
+      dst[out++] = mapped;
+    }
+    return out - dstOffset;
+  }
+
+  private static int shift(ByteBuffer src, ByteBuffer dst, int shift) {
+    int length = src.remaining();
+    if (dst.remaining() < length) {
+      throw new BufferOverflowException();
+    }
+    int written;
+    if (src.hasArray() && dst.hasArray() && !dst.isReadOnly()) {
+      written = shift(src.array(), src.arrayOffset() + src.position(), length,
+          dst.array(), dst.arrayOffset() + dst.position(), shift);
+      src.position(src.limit());
+      dst.position(dst.position() + written);
+    } else {
+      byte[] buffer = new byte[length];
+      src.get(buffer);
+      written = shift(buffer, 0, length, buffer, 0, shift);
+      dst.put(buffer, 0, written);
+    }
+    return written;
+  }
+
+  /**
+   * Finds a static method of the {@code VectorCaesar} kernel, which lives outside the default source tree
+   * because compiling it needs {@code --add-modules jdk.incubator.vector}.
+   *
+   * @return The method, or {@code null} if vectorization is turned off, the module is not in the boot
+   *         layer or the kernel was not built.
+   */
+  private static MethodHandle findVectorKernel(String name, MethodType type) {
+    if (!Boolean.parseBoolean(System.getProperty("chatapp.cipher.vector", "true"))
+        || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+      return null;
+    }
+    try {
+      return MethodHandles.lookup().findStatic(Class.forName("com.chatapp.utils.VectorCaesar"), name, type);
+    } catch (ReflectiveOperationException | LinkageError e) {
+      return null;
+    }
+  }
+
+  private static int vectorLanes() {
+    MethodHandle lanes = findVectorKernel("lanes", MethodType.methodType(int.class));
+    try {
+      return (int) lanes.invokeExact();
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  // A static final handle called with invokeExact is inlined by the JIT like a direct call.
+  private static int vectorShiftAscii(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset, int shift) {
+    try {
+      return (int) VECTOR_SHIFT_ASCII.invokeExact(src, srcOffset, length, dst, dstOffset, shift);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static int shift(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset, int shift) {
+    Objects.checkFromIndexSize(srcOffset, length, src.length);
+    Objects.checkFromIndexSize(dstOffset, length, dst.length);
+    char[] table = table(shift);
+    // Negative shifts keep their original (failing) arithmetic, so they never take the vector path.
+    boolean vectorized = VECTORIZED && shift >= 0;
+    int nextVectorAttempt = srcOffset;
+
+    int out = dstOffset;
+    int i = srcOffset;
+    int end = srcOffset + length;
+    while (i < end) {
+      if (vectorized && i >= nextVectorAttempt && end - i >= VECTOR_LANES) {
+        // Output never runs ahead of input, so this stays safe in place.
+        int shifted = vectorShiftAscii(src, i, end - i, dst, out, shift % ALPHABET_SIZE);
+        i += shifted;
+        out += shifted;
+        // It stopped at non-ASCII text; handle at least one block here before trying again.
+        nextVectorAttempt = i + VECTOR_LANES;
+        continue;
+      }
+
+      int b = src[i];
+      if (b >= 0) { // ASCII
+        char mapped = table[b];
+        dst[out++] = (byte) (mapped != UNMAPPED ? mapped : shiftChar((char) b, shift));
+        i++;
+        continue;
+      }
+
+      // A non-ASCII letter maps to an ASCII letter or is dropped, so the output never grows.
+      int sequenceLength = bmpSequenceLength(src, i, end);
+      if (sequenceLength > 0) {
+        char character = decodeBmp(src, i, sequenceLength);
+        if (Character.isLetter(character)) {
+          int mapped = shiftChar(character, shift);
+          if (mapped != DROPPED) {
+            dst[out++] = (byte) mapped;
+          }
+          i += sequenceLength;
+          continue;
         }
-        
+      }
+      dst[out++] = src[i++]; // Anything else, including malformed input, is copied byte by byte.
+    }
+    return out - dstOffset;
+  }
 
-      }else {
-        decryptedMessage.append(character); // Keep non-alphabet characters unchanged
+  /**
+   * Returns the lookup table for a shift, built on first use: the shifted char for each ASCII char, or
+   * {@link #UNMAPPED} where the original arithmetic does not produce a valid index (negative shifts),
+   * so those chars take the slow path and fail exactly as before.
+   */
+  private static char[] table(int shift) {
+    char[] table = TABLES.get(shift);
+    if (table == null) {
+      table = new char[ASCII_LIMIT];
+      for (char character = 0; character < ASCII_LIMIT; character++) {
+        try {
+          table[character] = (char) shiftChar(character, shift);
+        } catch (IndexOutOfBoundsException e) {
+          table[character] = UNMAPPED;
+        }
       }
-      // if (Character.isLetter(character)) {
-      // int position = ALPHABET.indexOf(character);
-      // // Calculate the decrypted position by subtracting the shiftKey and handle
-      // // negative values
-      // int decryptedPosition = (position - shiftKey + ALPHABET_SIZE) %
-      // ALPHABET_SIZE;
-      // char decryptedCharacter = ALPHABET.charAt(decryptedPosition);
-      // decryptedMessage.append(decryptedCharacter);
-      // } else {
-      // decryptedMessage.append(character); // Keep non-alphabet characters unchanged
-      // }
+      TABLES.putIfAbsent(shift, table);
+    }
+    return table;
+  }
+
+  /**
+   * The original per-char rule, kept for chars outside the tables. Non-ASCII upper and lower case
+   * letters are not found in the alphabets ({@code indexOf} returns -1) and so map to a shifted
+   * position from there; other letters are dropped.
+   *
+   * @return The shifted char, or {@link #DROPPED}.
+   */
+  private static int shiftChar(char character, int shift) {
+    if (!Character.isLetter(character)) {
+      return character;
     }
+    if (Character.isUpperCase(character)) {
+      return ALPHABET_UPPER.charAt((ALPHABET_UPPER.indexOf(character) + shift) % ALPHABET_SIZE);
+    }
+    if (Character.isLowerCase(character)) {
+      return ALPHABET_LOWER.charAt((ALPHABET_LOWER.indexOf(character) + shift) % ALPHABET_SIZE);
+    }
+    return DROPPED;
+  }
+
+  /**
+   * @return 2 or 3 if a well-formed UTF-8 sequence for a char in the Basic Multilingual Plane starts at
+   * {@code i}, otherwise 0.
+   */
+  private static int bmpSequenceLength(byte[] src, int i, int end) {
+    int lead = src[i] & 0xFF;
+    if (lead >= 0xC2 && lead <= 0xDF) {
+      return i + 1 < end && isContinuation(src[i + 1]) ? 2 : 0;
+    }
+    if (lead >= 0xE0 && lead <= 0xEF && i + 2 < end) {
+      int second = src[i + 1] & 0xFF;
+      // Reject overlong forms (E0 80..9F) and surrogates (ED A0..BF), as the String decoder does.
+      int min = lead == 0xE0 ? 0xA0 : 0x80;
+      int max = lead == 0xED ? 0x9F : 0xBF;
+      return second >= min && second <= max && isContinuation(src[i + 2]) ? 3 : 0;
+    }
+    return 0;
+  }
 
-    return decryptedMessage.toString();
+  private static boolean isContinuation(byte b) {
+    return (b & 0xC0) == 0x80;
+  }
+
+  private static char decodeBmp(byte[] src, int i, int sequenceLength) {
+    if (sequenceLength == 2) {
+      return (char) (((src[i] & 0x1F) << 6) | (src[i + 1] & 0x3F));
+    }
+    return (char) (((src[i] & 0x0F) << 12) | ((src[i + 1] & 0x3F) << 6) | (src[i + 2] & 0x3F));
   }
 
   /*
@@ -0,0 +1,53 @@
+package com.chatapp.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link MessageCipher} backed by {@link CaesarCipher}, shifting letters by a fixed key.
+ * <p>
+ * This is the chat application's original message encoding. It offers no real secrecy, but its output is
+ * plain text of the same length, so stored messages and older clients keep working unchanged.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+public class CaesarMessageCipher implements MessageCipher {
+    private final int shift;
+
+    /**
+     * @param shift The number of positions to shift each letter.
+     */
+    public CaesarMessageCipher(int shift) {
+        this.shift = shift;
+    }
+
+    @Override
+    public String encrypt(String plaintext) {
+        return CaesarCipher.encrypt(plaintext, shift);
+    }
+
+    @Override
+    public String decrypt(String ciphertext) {
+        return CaesarCipher.decrypt(ciphertext, shift);
+    }
+
+    @Override
+    public int encrypt(ByteBuffer plaintext, ByteBuffer ciphertext) {
+        return CaesarCipher.encrypt(plaintext, ciphertext, shift);
+    }
+
+    @Override
+    public int decrypt(ByteBuffer ciphertext, ByteBuffer plaintext) {
+        return CaesarCipher.decrypt(ciphertext, plaintext, shift);
+    }
+
+    @Override
+    public int maxEncryptedLength(int plaintextLength) {
+        return plaintextLength; // Characters the cipher cannot map are dropped, so output is never longer.
+    }
+
+    @Override
+    public String toString() {
+        return "CaesarMessageCipher{shift=" + shift + "}";
+    }
+}
@@ -0,0 +1,102 @@
+package com.chatapp.utils;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Encrypts and decrypts chat message bodies.
+ * <p>
+ * Chat rooms and clients talk to this interface instead of a particular algorithm, so the codec can be
+ * switched without touching them. Two implementations are provided:
+ * <ul>
+ *     <li>{@link CaesarMessageCipher}, the original letter shift, which keeps ciphertext readable text of the
+ *     same length, and</li>
+ *     <li>{@link AesGcmMessageCipher}, authenticated AES-GCM encryption with Base64 text ciphertext.</li>
+ * </ul>
+ * {@link #fromSystemProperties()} picks one from the {@code chatapp.cipher} system property.
+ * </p>
+ * <p>
+ * Implementations are safe to share between threads. Besides the {@code String} methods used for message
+ * bodies, they can work on {@code ByteBuffer}s of UTF-8 text, for callers that already hold message bytes.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+public interface MessageCipher {
+
+    /**
+     * Encrypts a message body.
+     *
+     * @param plaintext The message text.
+     * @return The encrypted text.
+     */
+    String encrypt(String plaintext);
+
+    /**
+     * Decrypts a message body produced by {@link #encrypt(String)}.
+     *
+     * @param ciphertext The encrypted text.
+     * @return The message text.
+     * @throws IllegalArgumentException if the ciphertext is malformed or fails authentication.
+     */
+    String decrypt(String ciphertext);
+
+    /**
+     * Encrypts the remaining UTF-8 bytes of {@code plaintext} into {@code ciphertext}. Both buffers'
+     * positions advance past the bytes read and written.
+     *
+     * @param plaintext  The UTF-8 encoded message.
+     * @param ciphertext The buffer receiving the encrypted bytes; needs room for
+     *                   {@link #maxEncryptedLength(int)} of the plaintext length.
+     * @return The number of bytes written.
+     */
+    int encrypt(ByteBuffer plaintext, ByteBuffer ciphertext);
+
+    /**
+     * Decrypts the remaining bytes of {@code ciphertext} into {@code plaintext}, like
+     * {@link #encrypt(ByteBuffer, ByteBuffer)} in reverse. {@code plaintext} needs room for as many bytes
+     * as {@code ciphertext} has remaining.
+     *
+     * @return The number of bytes written.
+     * @throws IllegalArgumentException if the ciphertext is malformed or fails authentication.
+     */
+    int decrypt(ByteBuffer ciphertext, ByteBuffer plaintext);
+
+    /**
+     * @param plaintextLength The number of plaintext bytes.
+     * @return the largest number of bytes {@link #encrypt(ByteBuffer, ByteBuffer)} can write for them.
+     */
+    int maxEncryptedLength(int plaintextLength);
+
+    /**
+     * Creates the cipher configured through system properties:
+     * <ul>
+     *     <li>{@code chatapp.cipher}: {@code caesar} (the default) or {@code aes-gcm},</li>
+     *     <li>{@code chatapp.cipher.caesarShift}: the Caesar shift, 3 by default, and</li>
+     *     <li>{@code chatapp.cipher.key}: the Base64 encoded 16, 24 or 32 byte AES key, required for
+     *     {@code aes-gcm}. Every process reading the same messages needs the same key.</li>
+     * </ul>
+     *
+     * @return the configured cipher.
+     * @throws IllegalStateException if the cipher name is unknown or the AES key is missing or invalid.
+     */
+    static MessageCipher fromSystemProperties() {
+        String name = System.getProperty("chatapp.cipher", "caesar");
+        switch (name) {
+            case "caesar":
+                return new CaesarMessageCipher(Integer.getInteger("chatapp.cipher.caesarShift", 3));
+            case "aes-gcm":
+                String key = System.getProperty("chatapp.cipher.key");
+                if (key == null) {
+                    throw new IllegalStateException("chatapp.cipher=aes-gcm needs a Base64 key in chatapp.cipher.key");
+                }
+                try {
+                    return new AesGcmMessageCipher(Base64.getDecoder().decode(key));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalStateException("Invalid chatapp.cipher.key: " + e.getMessage(), e);
+                }
+            default:
+                throw new IllegalStateException("Unknown chatapp.cipher " + name + ", expected caesar or aes-gcm");
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.chatapp.utils;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Salted, deliberately slow password hashing with PBKDF2-HMAC-SHA256.
+ * <p>
+ * A hash is stored as {@code pbkdf2-sha256$<iterations>$<salt>$<hash>}, with the salt and hash in Base64.
+ * Since every hash records its own iteration count, the work factor can be raised at any time: existing
+ * hashes keep verifying, and {@link #needsRehash(String)} reports them as due for an upgrade.
+ * </p>
+ * <p>
+ * Passwords stored before hashing was introduced hold {@code CaesarCipher.encrypt(password, 3)}.
+ * {@link #matches(String, String)} still accepts those, and {@link #needsRehash(String)} always reports
+ * them, so they can be replaced with a proper hash the next time their owner logs in.
+ * </p>
+ *
+ * @author Prutha Upadhyay
+ */
+public class PasswordHasher {
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2-sha256$";
+    private static final int SALT_LENGTH = 16;
+    private static final int HASH_LENGTH = 32;
+    private static final int LEGACY_CAESAR_SHIFT = 3;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final byte[] LEGACY_DUMMY_SALT = new byte[SALT_LENGTH];
+
+    private final int iterations;
+
+    /**
+     * @param iterations The PBKDF2 iteration count for new hashes; each doubling doubles the cost of a guess.
+     */
+    public PasswordHasher(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("iterations must be positive: " + iterations);
+        }
+        this.iterations = iterations;
+    }
+
+    /**
+     * @return the iteration count used for new hashes.
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Hashes a password with a new random salt.
+     *
+     * @param password The password.
+     * @return The encoded hash, to be stored as is.
+     */
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_LENGTH];
+        RANDOM.nextBytes(salt);
+        byte[] hash = pbkdf2(password, salt, iterations, HASH_LENGTH);
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + iterations + "$" + base64.encodeToString(salt) + "$" + base64.encodeToString(hash);
+    }
+
+    /**
+     * Checks a password against a stored hash, or against a legacy Caesar-encoded password. The final
+     * comparison takes constant time, and a legacy password is checked only after a PBKDF2 run as costly
+     * as one for a new hash.
+     *
+     * @param password The password to check.
+     * @param stored   The stored hash.
+     * @return {@code true} if the password is correct; {@code false} otherwise, also for a malformed hash.
+     */
+    public boolean matches(String password, String stored) {
+        if (stored == null) {
+            return false;
+        }
+        if (!stored.startsWith(PREFIX)) {
+            // Spend the same PBKDF2 work as a hashed password, so legacy accounts cannot be told apart by timing.
+            pbkdf2(password, LEGACY_DUMMY_SALT, iterations, HASH_LENGTH);
+            return MessageDigest.isEqual(CaesarCipher.encrypt(password, LEGACY_CAESAR_SHIFT)
+                    .getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.substring(PREFIX.length()).split("\\$");
+        if (parts.length != 3) {
+            return false;
+        }
+        try {
+            int storedIterations = Integer.parseInt(parts[0]);
+            byte[] salt = Base64.getDecoder().decode(parts[1]);
+            byte[] expected = Base64.getDecoder().decode(parts[2]);
+            return storedIterations > 0 && expected.length > 0
+                    && MessageDigest.isEqual(pbkdf2(password, salt, storedIterations, expected.length), expected);
+        } catch (IllegalArgumentException e) { // Also covers NumberFormatException
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether a stored password should be replaced with a new hash once its password is known,
+     * because it is a legacy Caesar-encoded password or was hashed with fewer iterations than now configured.
+     *
+     * @param stored The stored hash.
+     * @return {@code true} if the password should be rehashed.
+     */
+    public boolean needsRehash(String stored) {
+        if (stored == null || !stored.startsWith(PREFIX)) {
+            return true;
+        }
+        int end = stored.indexOf('$', PREFIX.length());
+        try {
+            return end < 0 || Integer.parseInt(stored.substring(PREFIX.length(), end)) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations, int length) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, length * 8);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}